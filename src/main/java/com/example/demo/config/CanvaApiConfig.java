@@ -2,20 +2,133 @@ package com.example.demo.config;
 
 import com.example.demo.canva.client.ApiClient;
 import com.example.demo.canva.api.*;
+import com.example.demo.service.TokenRefreshManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 @Configuration
 public class CanvaApiConfig {
 
     @Value("${canva.api.base-url:https://api.canva.com/rest}")
     private String baseUrl;
 
+    @Value("${canva.api.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${canva.api.read-timeout:30s}")
+    private Duration readTimeout;
+
+    /**
+     * Shared HTTP transport for every outbound Canva call. Read timeouts are bounded by the
+     * current request deadline, see {@link DeadlineAwareRequestFactory}.
+     */
+    @Bean
+    public DeadlineAwareRequestFactory canvaRequestFactory(@Qualifier("canvaHttpExecutor") ExecutorService executor) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+        return new DeadlineAwareRequestFactory(httpClient, executor, readTimeout);
+    }
+
+    /**
+     * Operation ids of outbound calls, from the specs the clients are generated from
+     */
+    @Bean
+    public CanvaOperationResolver canvaOperationResolver() {
+        return new CanvaOperationResolver("openapi/spec.yml", "openapi/private-api.yml");
+    }
+
+    /**
+     * Latency, status and in-flight metrics for calls to the public Connect API
+     */
+    @Bean
+    public CanvaClientObservationInterceptor canvaClientObservationInterceptor(ObservationRegistry observationRegistry,
+                                                                               CanvaOperationResolver canvaOperationResolver) {
+        return new CanvaClientObservationInterceptor(observationRegistry, canvaOperationResolver, "connect");
+    }
+
+    @Bean
+    public CanvaClientObservationInterceptor canvaPrivateClientObservationInterceptor(ObservationRegistry observationRegistry,
+                                                                                      CanvaOperationResolver canvaOperationResolver) {
+        return new CanvaClientObservationInterceptor(observationRegistry, canvaOperationResolver, "private");
+    }
+
+    /**
+     * Records calls to the public Connect API in the flight recorder
+     */
+    @Bean
+    public CanvaFlightRecorderInterceptor canvaFlightRecorderInterceptor(CanvaFlightRecorder canvaFlightRecorder,
+                                                                         CanvaOperationResolver canvaOperationResolver) {
+        return new CanvaFlightRecorderInterceptor(canvaFlightRecorder, canvaOperationResolver, "connect");
+    }
+
+    @Bean
+    public CanvaFlightRecorderInterceptor canvaPrivateFlightRecorderInterceptor(CanvaFlightRecorder canvaFlightRecorder,
+                                                                                CanvaOperationResolver canvaOperationResolver) {
+        return new CanvaFlightRecorderInterceptor(canvaFlightRecorder, canvaOperationResolver, "private");
+    }
+
+    /**
+     * Retries calls to the public Connect API that fail with 401 once, after refreshing the
+     * session's token. Each attempt is observed and recorded on its own.
+     */
+    @Bean
+    public TokenRefreshInterceptor tokenRefreshInterceptor(TokenRefreshManager tokenRefreshManager,
+                                                           MeterRegistry meterRegistry,
+                                                           CanvaClientObservationInterceptor canvaClientObservationInterceptor,
+                                                           CanvaFlightRecorderInterceptor canvaFlightRecorderInterceptor) {
+        return new TokenRefreshInterceptor(tokenRefreshManager, meterRegistry,
+                canvaClientObservationInterceptor, canvaFlightRecorderInterceptor);
+    }
+
+    @Bean
+    public TokenRefreshInterceptor canvaPrivateTokenRefreshInterceptor(TokenRefreshManager tokenRefreshManager,
+                                                                       MeterRegistry meterRegistry,
+                                                                       CanvaClientObservationInterceptor canvaPrivateClientObservationInterceptor,
+                                                                       CanvaFlightRecorderInterceptor canvaPrivateFlightRecorderInterceptor) {
+        return new TokenRefreshInterceptor(tokenRefreshManager, meterRegistry,
+                canvaPrivateClientObservationInterceptor, canvaPrivateFlightRecorderInterceptor);
+    }
+
+    /**
+     * RestClient for the public Connect API. Built from the generated client's defaults so the
+     * generated models keep their Jackson configuration. The token refresh interceptor must
+     * stay the last one registered, see {@link TokenRefreshInterceptor}.
+     */
+    @Bean
+    public RestClient canvaRestClient(DeadlineAwareRequestFactory canvaRequestFactory,
+                                      TokenRefreshInterceptor tokenRefreshInterceptor) {
+        return new ApiClient().getRestClient().mutate()
+                .requestFactory(canvaRequestFactory)
+                .requestInterceptor(tokenRefreshInterceptor)
+                .build();
+    }
+
+    /**
+     * RestClient for the private API, configured the same way as {@link #canvaRestClient}
+     */
+    @Bean
+    public RestClient canvaPrivateRestClient(DeadlineAwareRequestFactory canvaRequestFactory,
+                                             TokenRefreshInterceptor canvaPrivateTokenRefreshInterceptor) {
+        return new com.example.demo.canva.privateclient.ApiClient().getRestClient().mutate()
+                .requestFactory(canvaRequestFactory)
+                .requestInterceptor(canvaPrivateTokenRefreshInterceptor)
+                .build();
+    }
+
     @Bean
-    public ApiClient canvaApiClient() {
-        ApiClient apiClient = new ApiClient();
+    public ApiClient canvaApiClient(@Qualifier("canvaRestClient") RestClient canvaRestClient) {
+        ApiClient apiClient = new ApiClient(canvaRestClient);
         apiClient.setBasePath(baseUrl);
 
         // Note: Authentication is set dynamically per-request using session tokens
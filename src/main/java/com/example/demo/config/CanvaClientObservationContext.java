@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import io.micrometer.observation.transport.Kind;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Observation context for one outbound Canva call, shared by the blocking and reactive
+ * clients. The carrier is the request's headers, so tracing can propagate into them.
+ * The response is the HTTP status code; it stays null when no response arrived.
+ */
+public class CanvaClientObservationContext extends RequestReplySenderContext<HttpHeaders, Integer> {
+
+    private final String client;
+    private final String operation;
+    private final String method;
+    private final String path;
+    private final String attempt;
+    private long requestBytes = -1;
+    private long responseBytes = -1;
+
+    public CanvaClientObservationContext(HttpHeaders headers, String client, String operation, String method, String path,
+                                         String attempt) {
+        super((carrier, key, value) -> carrier.set(key, value), Kind.CLIENT);
+        setCarrier(headers);
+        this.client = client;
+        this.operation = operation;
+        this.method = method;
+        this.path = path;
+        this.attempt = attempt;
+    }
+
+    /** Which API the call went to: {@code connect} or {@code private} */
+    public String getClient() {
+        return client;
+    }
+
+    /** OpenAPI operation id, see {@link CanvaOperationResolver} */
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /** Request path without the query string; high cardinality, never a metric tag */
+    public String getPath() {
+        return path;
+    }
+
+    /** {@code initial}, {@code retry} after a token refresh, or {@code hedge} */
+    public String getAttempt() {
+        return attempt;
+    }
+
+    /** Request body size, or -1 if unknown */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    /** Response body bytes read ({@code Content-Length} if the body was never opened), or -1 if unknown */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.config;
+
+import com.example.demo.service.DeadlineExceededException;
+import io.micrometer.common.KeyValues;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationConvention;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Names and tags of outbound Canva call observations. The meter handler turns them into the
+ * {@code canva.client.requests} timer and the {@code canva.client.requests.active} in-flight
+ * timer, tagged by operation id, method, status, outcome and attempt; with tracing enabled
+ * each call is also a client span carrying the same tags.
+ */
+public class CanvaClientObservationConvention implements ObservationConvention<CanvaClientObservationContext> {
+
+    public static final String NAME = "canva.client.requests";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getContextualName(CanvaClientObservationContext context) {
+        return "canva " + context.getOperation();
+    }
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(CanvaClientObservationContext context) {
+        Integer status = context.getResponse();
+        Throwable error = context.getError();
+        return KeyValues.of(
+                "client", context.getClient(),
+                "operation", context.getOperation(),
+                "method", context.getMethod(),
+                "status", status != null ? String.valueOf(status) : "none",
+                "outcome", outcome(status, error),
+                "exception", error != null ? error.getClass().getSimpleName() : "none",
+                "attempt", context.getAttempt());
+    }
+
+    @Override
+    public KeyValues getHighCardinalityKeyValues(CanvaClientObservationContext context) {
+        return KeyValues.of("path", context.getPath());
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof CanvaClientObservationContext;
+    }
+
+    /**
+     * Status class of the response, or TIMEOUT / CANCELLED / IO_ERROR when none arrived
+     */
+    static String outcome(Integer status, Throwable error) {
+        if (status != null) {
+            return switch (status / 100) {
+                case 1 -> "INFORMATIONAL";
+                case 2 -> "SUCCESS";
+                case 3 -> "REDIRECTION";
+                case 4 -> "CLIENT_ERROR";
+                case 5 -> "SERVER_ERROR";
+                default -> "UNKNOWN";
+            };
+        }
+        if (error == null) {
+            return "UNKNOWN";
+        }
+        if (DeadlineExceededException.isTimeout(error)) {
+            return "TIMEOUT";
+        }
+        return error instanceof CancellationException ? "CANCELLED" : "IO_ERROR";
+    }
+}
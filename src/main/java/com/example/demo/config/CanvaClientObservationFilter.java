@@ -0,0 +1,93 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive counterpart of {@link CanvaClientObservationInterceptor} for the Canva WebClients.
+ * The observation starts on subscription, with the request context carried in the Reactor
+ * context bound. As with the blocking interceptor it covers reading the body, which is counted
+ * as it streams through: it stops when the body completes or is released, the exchange fails
+ * or the subscriber cancels (e.g. a deadline timeout).
+ */
+public class CanvaClientObservationFilter implements ExchangeFilterFunction {
+
+    private static final CanvaClientObservationConvention CONVENTION = new CanvaClientObservationConvention();
+
+    private final ObservationRegistry observationRegistry;
+    private final CanvaOperationResolver operations;
+    private final String client;
+
+    public CanvaClientObservationFilter(ObservationRegistry observationRegistry, CanvaOperationResolver operations,
+                                        String client) {
+        this.observationRegistry = observationRegistry;
+        this.operations = operations;
+        this.client = client;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(reactorContext -> {
+            // Subscription may happen on an event-loop thread; bind the subscriber's request
+            // context while the observation starts so its handlers see the caller
+            CanvaRequestContext caller = reactorContext.getOrDefault(CanvaRequestContext.class, CanvaRequestContext.current());
+            String method = request.method().name();
+            HttpHeaders propagated = new HttpHeaders();
+            CanvaClientObservationContext context = new CanvaClientObservationContext(propagated, client,
+                    operations.resolve(method, request.url()), method, request.url().getRawPath(),
+                    caller != null ? caller.getAttempt() : CanvaRequestContext.INITIAL_ATTEMPT);
+            context.setRequestBytes(request.headers().getContentLength());
+            Observation observation = Observation.createNotStarted(CONVENTION, () -> context, observationRegistry);
+            CanvaRequestContext previous = CanvaRequestContext.current();
+            CanvaRequestContext.set(caller);
+            try {
+                observation.start();
+            } finally {
+                CanvaRequestContext.set(previous);
+            }
+
+            ClientRequest observed = ClientRequest.from(request)
+                    .headers(headers -> headers.addAll(propagated))
+                    .build();
+            AtomicBoolean stopped = new AtomicBoolean();
+            Runnable stop = () -> {
+                if (stopped.compareAndSet(false, true)) {
+                    observation.stop();
+                }
+            };
+            return next.exchange(observed)
+                    .map(response -> {
+                        context.setResponse(response.statusCode().value());
+                        AtomicLong bytes = new AtomicLong();
+                        return response.mutate()
+                                .body(body -> body
+                                        .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                                        .doOnError(observation::error)
+                                        .doFinally(signal -> {
+                                            context.setResponseBytes(bytes.get());
+                                            stop.run();
+                                        }))
+                                .build();
+                    })
+                    .doOnError(error -> {
+                        observation.error(error);
+                        stop.run();
+                    })
+                    .doOnCancel(() -> {
+                        observation.error(new CancellationException("Cancelled by subscriber"));
+                        stop.run();
+                    });
+        });
+    }
+}
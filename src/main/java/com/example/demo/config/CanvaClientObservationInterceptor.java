@@ -0,0 +1,147 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Observes every call made through the blocking Canva RestClients: latency, status and
+ * in-flight count per operation id. Run by {@link TokenRefreshInterceptor} around each
+ * attempt rather than registered on the client, so a retry after a token refresh is observed
+ * as a call of its own. The observation covers the
+ * call until its response is closed, including reading the body.
+ */
+public class CanvaClientObservationInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final CanvaClientObservationConvention CONVENTION = new CanvaClientObservationConvention();
+
+    private final ObservationRegistry observationRegistry;
+    private final CanvaOperationResolver operations;
+    private final String client;
+
+    public CanvaClientObservationInterceptor(ObservationRegistry observationRegistry, CanvaOperationResolver operations,
+                                             String client) {
+        this.observationRegistry = observationRegistry;
+        this.operations = operations;
+        this.client = client;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String method = request.getMethod().name();
+        CanvaClientObservationContext context = new CanvaClientObservationContext(request.getHeaders(), client,
+                operations.resolve(method, request.getURI()), method, request.getURI().getRawPath(),
+                CanvaRequestContext.currentAttempt());
+        context.setRequestBytes(body.length);
+        Observation observation = Observation.createNotStarted(CONVENTION, () -> context, observationRegistry).start();
+        ClientHttpResponse response;
+        try (Observation.Scope scope = observation.openScope()) {
+            response = execution.execute(request, body);
+            context.setResponse(response.getStatusCode().value());
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+        return new ObservedResponse(response, context, observation);
+    }
+
+    /**
+     * Counts the response body as the caller reads it and stops the observation when the
+     * response is closed, so that bytes in are what actually arrived rather than Content-Length
+     */
+    private static final class ObservedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final CanvaClientObservationContext context;
+        private final Observation observation;
+        private CountingInputStream body;
+        private boolean stopped;
+
+        ObservedResponse(ClientHttpResponse delegate, CanvaClientObservationContext context, Observation observation) {
+            this.delegate = delegate;
+            this.context = context;
+            this.observation = observation;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (!stopped) {
+                    stopped = true;
+                    context.setResponseBytes(body != null ? body.count : delegate.getHeaders().getContentLength());
+                    observation.stop();
+                }
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
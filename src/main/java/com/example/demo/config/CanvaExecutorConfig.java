@@ -0,0 +1,130 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for upstream Canva I/O. They follow the application's threading mode:
+ * with {@code spring.threads.virtual.enabled=true} Tomcat handlers, fan-out tasks and the
+ * HTTP client all run on virtual threads; otherwise they use bounded platform thread pools.
+ */
+@Configuration
+public class CanvaExecutorConfig {
+
+    private static final ContextPropagatingTaskDecorator OBSERVATION_PROPAGATION = new ContextPropagatingTaskDecorator();
+
+    @Value("${canva.fan-out.concurrency-limit:64}")
+    private int concurrencyLimit;
+
+    @Value("${canva.fan-out.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${canva.hedging.concurrency-limit:16}")
+    private int hedgingConcurrencyLimit;
+
+    @Value("${canva.warmup.concurrency:2}")
+    private int warmupConcurrency;
+
+    @Value("${canva.warmup.queue-capacity:200}")
+    private int warmupQueueCapacity;
+
+    /**
+     * Executor for concurrent upstream Canva calls made on behalf of a single request.
+     * The concurrency limit caps how many calls can be in flight at once; on platform threads at
+     * most queue-capacity more wait for a thread, and further tasks are rejected.
+     * Tasks inherit the submitting request's context, including its deadline and trace.
+     */
+    @Bean
+    public AsyncTaskExecutor canvaFanOutExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("canva-fan-out-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrencyLimit);
+            executor.setTaskDecorator(CanvaExecutorConfig::propagateContext);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("canva-fan-out-");
+        executor.setCorePoolSize(concurrencyLimit);
+        executor.setMaxPoolSize(concurrencyLimit);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(CanvaExecutorConfig::propagateContext);
+        return executor;
+    }
+
+    /**
+     * Executor for hedged Canva calls, kept apart from the fan-out executor so that hedging
+     * cannot starve the fan-out it speeds up. The hedger itself caps attempts in flight at the
+     * concurrency limit; the queue only absorbs cancelled attempts that are still finishing.
+     */
+    @Bean
+    public AsyncTaskExecutor canvaHedgeExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("canva-hedge-");
+            executor.setVirtualThreads(true);
+            executor.setTaskDecorator(CanvaExecutorConfig::propagateContext);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("canva-hedge-");
+        executor.setCorePoolSize(hedgingConcurrencyLimit);
+        executor.setMaxPoolSize(hedgingConcurrencyLimit);
+        executor.setQueueCapacity(hedgingConcurrencyLimit);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(CanvaExecutorConfig::propagateContext);
+        return executor;
+    }
+
+    /**
+     * Executor used by the JDK HttpClient behind every outbound Canva call
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService canvaHttpExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("canva-http-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("canva-http-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Executor for background prefetching after login. Always a small pool of minimum-priority
+     * platform threads with a bounded queue, whatever the threading mode, so warm-up work has
+     * its own concurrency budget and never competes with request handling. Tasks that do not
+     * fit are rejected rather than queued without bound.
+     */
+    @Bean
+    public AsyncTaskExecutor canvaWarmupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("canva-warmup-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setDaemon(true);
+        executor.setCorePoolSize(warmupConcurrency);
+        executor.setMaxPoolSize(warmupConcurrency);
+        executor.setQueueCapacity(warmupQueueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(CanvaExecutorConfig::propagateContext);
+        return executor;
+    }
+
+    /**
+     * Carries the submitting thread's request context and its observation (the current trace
+     * span) over to the thread that runs the task
+     */
+    static Runnable propagateContext(Runnable task) {
+        return OBSERVATION_PROPAGATION.decorate(CanvaRequestContext.wrap(task));
+    }
+}
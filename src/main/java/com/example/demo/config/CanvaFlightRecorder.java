@@ -0,0 +1,193 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers the most recent upstream Canva calls, so incidents can be investigated after the
+ * fact without turning on verbose logging (see {@code /api/admin/flight-recorder}).
+ * <p>
+ * Calls are written into a fixed ring of slots with one atomic increment and one small
+ * record per call; the oldest call is overwritten once the ring is full. Credentials are never
+ * stored: sensitive header values are replaced by {@code ***}, and only the start of an error
+ * body is kept.
+ */
+@Component
+public class CanvaFlightRecorder {
+
+    private static final String REDACTED = "***";
+    private static final Set<String> SENSITIVE_HEADERS = Set.of("authorization", "cookie", "set-cookie", "proxy-authorization");
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int errorBodyLimit;
+    private final AtomicReferenceArray<CallRecord> slots;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public CanvaFlightRecorder(@Value("${canva.flight-recorder.enabled:true}") boolean enabled,
+                               @Value("${canva.flight-recorder.capacity:4096}") int capacity,
+                               @Value("${canva.flight-recorder.error-body-limit:512}") int errorBodyLimit) {
+        this.enabled = enabled && capacity > 0;
+        this.capacity = Math.max(capacity, 1);
+        this.errorBodyLimit = errorBodyLimit;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Bytes of an error response body to keep */
+    public int getErrorBodyLimit() {
+        return errorBodyLimit;
+    }
+
+    /**
+     * Start recording a call made on the current thread; the user and attempt are taken from
+     * the current {@link CanvaRequestContext}
+     */
+    public Call start(String client, String operation, String method, String path, HttpHeaders headers,
+                      long requestBytes) {
+        return new Call(client, operation, method, path, redact(headers), requestBytes,
+                CanvaRequestContext.currentUserId(), CanvaRequestContext.currentAttempt());
+    }
+
+    void record(CallRecord call) {
+        long index = cursor.getAndIncrement();
+        slots.set((int) (index % capacity), call);
+    }
+
+    /**
+     * Recorded calls matching the filter, newest first
+     */
+    public List<CallRecord> query(Filter filter) {
+        List<CallRecord> result = new ArrayList<>(Math.min(filter.limit(), 256));
+        long newest = cursor.get() - 1;
+        long oldest = Math.max(0, newest - capacity + 1);
+        for (long index = newest; index >= oldest && result.size() < filter.limit(); index--) {
+            CallRecord call = slots.get((int) (index % capacity));
+            if (call != null && filter.matches(call)) {
+                result.add(call);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            slots.set(i, null);
+        }
+    }
+
+    private static Map<String, String> redact(HttpHeaders headers) {
+        Map<String, String> redacted = new LinkedHashMap<>(headers.size() * 2);
+        headers.forEach((name, values) -> redacted.put(name,
+                SENSITIVE_HEADERS.contains(name.toLowerCase()) ? REDACTED : String.join(", ", values)));
+        return redacted;
+    }
+
+    /**
+     * A call in progress; {@link #finish} records it
+     */
+    public final class Call {
+        private final long startedAtMillis = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final String client;
+        private final String operation;
+        private final String method;
+        private final String path;
+        private final Map<String, String> headers;
+        private final long requestBytes;
+        private final String userId;
+        private final String attempt;
+
+        private Call(String client, String operation, String method, String path, Map<String, String> headers,
+                     long requestBytes, String userId, String attempt) {
+            this.client = client;
+            this.operation = operation;
+            this.method = method;
+            this.path = path;
+            this.headers = headers;
+            this.requestBytes = requestBytes;
+            this.userId = userId;
+            this.attempt = attempt;
+        }
+
+        /** Nanoseconds since the call started */
+        public long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+        /**
+         * @param status        HTTP status, or 0 when no response arrived
+         * @param latencyNanos  time until the response headers arrived (or the call failed)
+         * @param responseBytes response body size, or -1 if unknown
+         * @param error         exception that ended the call, or null
+         * @param errorBody     buffer holding the start of the error response body, or null
+         * @param errorBodyLength bytes of {@code errorBody} in use
+         */
+        public void finish(int status, long latencyNanos, long responseBytes, String error, byte[] errorBody,
+                           int errorBodyLength) {
+            record(new CallRecord(Instant.ofEpochMilli(startedAtMillis), userId, client, operation, method, path,
+                    attempt, status, latencyNanos / 1_000, requestBytes, responseBytes, headers, error,
+                    errorBody != null ? new String(errorBody, 0, errorBodyLength, StandardCharsets.UTF_8) : null));
+        }
+    }
+
+    /**
+     * One recorded upstream call. {@code status} is 0 when no response arrived; byte counts
+     * are -1 when unknown.
+     */
+    public record CallRecord(Instant startedAt, String userId, String client, String operation, String method,
+                             String path, String attempt, int status, long latencyMicros, long requestBytes,
+                             long responseBytes, Map<String, String> requestHeaders, String error, String errorBody) {
+    }
+
+    /**
+     * Query over recorded calls; null criteria match everything. {@code status} is an exact
+     * code ({@code 429}), a class ({@code 5xx}) or {@code error} for calls without a response.
+     * A negative limit returns nothing.
+     */
+    public record Filter(String userId, String operation, String status, Duration minLatency, int limit) {
+
+        public Filter {
+            limit = Math.max(0, limit);
+        }
+
+        boolean matches(CallRecord call) {
+            if (userId != null && !userId.equals(call.userId())) {
+                return false;
+            }
+            if (operation != null && !operation.equals(call.operation())) {
+                return false;
+            }
+            if (minLatency != null && call.latencyMicros() < minLatency.toNanos() / 1_000) {
+                return false;
+            }
+            return status == null || matchesStatus(call.status());
+        }
+
+        private boolean matchesStatus(int code) {
+            if (status.equalsIgnoreCase("error")) {
+                return code == 0;
+            }
+            if (status.length() == 3 && status.substring(1).equalsIgnoreCase("xx")) {
+                return code / 100 == status.charAt(0) - '0';
+            }
+            return status.equals(Integer.toString(code));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive counterpart of {@link CanvaFlightRecorderInterceptor} for the Canva WebClients.
+ * Successful responses are recorded once their body has streamed through, with the bytes
+ * counted on the way and the latency taken when the headers arrived. Error bodies are small
+ * and are read here, so their start can be recorded; the response is passed on with the same
+ * body.
+ */
+public class CanvaFlightRecorderFilter implements ExchangeFilterFunction {
+
+    private final CanvaFlightRecorder recorder;
+    private final CanvaOperationResolver operations;
+    private final String client;
+
+    public CanvaFlightRecorderFilter(CanvaFlightRecorder recorder, CanvaOperationResolver operations, String client) {
+        this.recorder = recorder;
+        this.operations = operations;
+        this.client = client;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!recorder.isEnabled()) {
+            return next.exchange(request);
+        }
+        return Mono.deferContextual(reactorContext -> {
+            String method = request.method().name();
+            // Bind the subscriber's request context, carried in the Reactor context, so the
+            // call is recorded with its user and attempt even on an event-loop thread
+            CanvaRequestContext previous = CanvaRequestContext.current();
+            CanvaRequestContext.set(reactorContext.getOrDefault(CanvaRequestContext.class, previous));
+            CanvaFlightRecorder.Call call;
+            try {
+                call = recorder.start(client, operations.resolve(method, request.url()), method,
+                        request.url().getRawPath(), request.headers(), request.headers().getContentLength());
+            } finally {
+                CanvaRequestContext.set(previous);
+            }
+            return next.exchange(request)
+                    .flatMap(response -> {
+                        long latencyNanos = call.elapsedNanos();
+                        int status = response.statusCode().value();
+                        if (!response.statusCode().isError() || recorder.getErrorBodyLimit() <= 0) {
+                            AtomicLong bytes = new AtomicLong();
+                            return Mono.just(response.mutate()
+                                    .body(body -> body
+                                            .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                                            .doFinally(signal -> call.finish(status, latencyNanos, bytes.get(), null, null, 0)))
+                                    .build());
+                        }
+                        return response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> {
+                                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                                    call.finish(status, latencyNanos, bytes.length, null, bytes,
+                                            Math.min(bytes.length, recorder.getErrorBodyLimit()));
+                                    return response.mutate().body(body).build();
+                                });
+                    })
+                    .doOnError(e -> call.finish(0, call.elapsedNanos(), -1, e.toString(), null, 0))
+                    .doOnCancel(() -> call.finish(0, call.elapsedNanos(), -1, "Cancelled by subscriber", null, 0));
+        });
+    }
+}
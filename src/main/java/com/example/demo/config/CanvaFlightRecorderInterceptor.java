@@ -0,0 +1,164 @@
+package com.example.demo.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Records every call made through the blocking Canva RestClients in the
+ * {@link CanvaFlightRecorder}. Run by {@link TokenRefreshInterceptor} around each attempt
+ * rather than registered on the client, so a retry after a token refresh is recorded as a
+ * call of its own.
+ * <p>
+ * The body is not buffered: bytes are counted as the caller reads them, and the start of an
+ * error body is copied aside on the way through. The call is recorded when the response is
+ * closed.
+ */
+public class CanvaFlightRecorderInterceptor implements ClientHttpRequestInterceptor {
+
+    private final CanvaFlightRecorder recorder;
+    private final CanvaOperationResolver operations;
+    private final String client;
+
+    public CanvaFlightRecorderInterceptor(CanvaFlightRecorder recorder, CanvaOperationResolver operations, String client) {
+        this.recorder = recorder;
+        this.operations = operations;
+        this.client = client;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!recorder.isEnabled()) {
+            return execution.execute(request, body);
+        }
+        String method = request.getMethod().name();
+        CanvaFlightRecorder.Call call = recorder.start(client, operations.resolve(method, request.getURI()), method,
+                request.getURI().getRawPath(), request.getHeaders(), body.length);
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            call.finish(0, call.elapsedNanos(), -1, e.toString(), null, 0);
+            throw e;
+        }
+        return new RecordingResponse(response, call, call.elapsedNanos());
+    }
+
+    private final class RecordingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final CanvaFlightRecorder.Call call;
+        private final long latencyNanos;
+        private CountingInputStream body;
+        private boolean recorded;
+
+        RecordingResponse(ClientHttpResponse delegate, CanvaFlightRecorder.Call call, long latencyNanos) {
+            this.delegate = delegate;
+            this.call = call;
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                int captureLimit = getStatusCode().isError() ? recorder.getErrorBodyLimit() : 0;
+                body = new CountingInputStream(delegate.getBody(), captureLimit);
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (!recorded) {
+                    recorded = true;
+                    record();
+                }
+            }
+        }
+
+        private void record() {
+            int status;
+            try {
+                status = delegate.getStatusCode().value();
+            } catch (IOException e) {
+                status = 0;
+            }
+            long responseBytes = body != null ? body.count : delegate.getHeaders().getContentLength();
+            call.finish(status, latencyNanos, responseBytes, null,
+                    body != null ? body.captured : null, body != null ? body.capturedLength : 0);
+        }
+    }
+
+    /**
+     * Counts bytes read and keeps a copy of the first {@code captureLimit} of them
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+        final byte[] captured;
+        int capturedLength;
+
+        CountingInputStream(InputStream in, int captureLimit) {
+            super(in);
+            this.captured = captureLimit > 0 ? new byte[captureLimit] : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                if (captured != null && capturedLength < captured.length) {
+                    captured[capturedLength++] = (byte) b;
+                }
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                if (captured != null && capturedLength < captured.length) {
+                    int copied = Math.min(read, captured.length - capturedLength);
+                    System.arraycopy(buffer, offset, captured, capturedLength, copied);
+                    capturedLength += copied;
+                }
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaJfrEvents;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits a {@link CanvaJfrEvents.Call} JFR event for every observed outbound Canva call, from
+ * both the blocking and the reactive clients. The event spans the same interval as the
+ * {@code canva.client.requests} timer.
+ */
+@Component
+public class CanvaJfrObservationHandler implements ObservationHandler<CanvaClientObservationContext> {
+
+    @Override
+    public void onStart(CanvaClientObservationContext context) {
+        CanvaJfrEvents.Call event = new CanvaJfrEvents.Call();
+        if (event.isEnabled()) {
+            event.begin();
+            context.put(CanvaJfrEvents.Call.class, event);
+        }
+    }
+
+    @Override
+    public void onStop(CanvaClientObservationContext context) {
+        CanvaJfrEvents.Call event = context.get(CanvaJfrEvents.Call.class);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            Integer status = context.getResponse();
+            event.client = context.getClient();
+            event.operation = context.getOperation();
+            event.method = context.getMethod();
+            event.path = context.getPath();
+            event.attempt = context.getAttempt();
+            event.status = status != null ? status : 0;
+            event.outcome = CanvaClientObservationConvention.outcome(status, context.getError());
+            event.bytesOut = context.getRequestBytes();
+            event.bytesIn = context.getResponseBytes();
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof CanvaClientObservationContext;
+    }
+}
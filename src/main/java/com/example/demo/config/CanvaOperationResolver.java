@@ -0,0 +1,144 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps an outbound Canva request to the OpenAPI operation id it calls, e.g.
+ * {@code GET /rest/v1/designs/DAF.../pages} to {@code getDesignPages}, using the path
+ * templates of the bundled specs. Most callers build URLs by hand, so the id is recovered from
+ * the request rather than passed in. Requests that match no template resolve to
+ * {@link #UNKNOWN}.
+ */
+public class CanvaOperationResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanvaOperationResolver.class);
+
+    public static final String UNKNOWN = "unknown";
+
+    private static final List<String> METHODS = List.of("get", "post", "put", "patch", "delete");
+
+    /** Templates by "METHOD segmentCount" */
+    private final Map<String, List<Template>> templates = new HashMap<>();
+
+    public CanvaOperationResolver(String... specResources) {
+        for (String resource : specResources) {
+            load(resource);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(String resource) {
+        try (InputStream in = CanvaOperationResolver.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                logger.warn("OpenAPI spec {} not found on the classpath; its operations resolve to '{}'", resource, UNKNOWN);
+                return;
+            }
+            LoaderOptions options = new LoaderOptions();
+            options.setCodePointLimit(8 * 1024 * 1024);
+            Map<String, Object> spec = new Yaml(options).load(in);
+            Map<String, Object> paths = (Map<String, Object>) spec.getOrDefault("paths", Map.of());
+            for (Map.Entry<String, Object> path : paths.entrySet()) {
+                Map<String, Object> operations = (Map<String, Object>) path.getValue();
+                for (String method : METHODS) {
+                    if (operations.get(method) instanceof Map<?, ?> operation && operation.get("operationId") instanceof String id) {
+                        add(method.toUpperCase(), path.getKey(), id);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read OpenAPI spec {}: {}", resource, e.getMessage());
+        }
+    }
+
+    private void add(String method, String path, String operationId) {
+        String[] segments = segments(path);
+        List<Template> candidates = templates.computeIfAbsent(method + " " + segments.length, key -> new ArrayList<>());
+        for (Template existing : candidates) {
+            // Both specs define the public operations; keep the first
+            if (existing.matchesTemplate(segments)) {
+                return;
+            }
+        }
+        candidates.add(new Template(segments, operationId));
+    }
+
+    /**
+     * Operation id for the request, preferring the template with the most literal segments
+     * ({@code /v1/folders/move} over {@code /v1/folders/{folderId}})
+     */
+    public String resolve(String method, URI uri) {
+        String[] segments = segments(apiPath(uri.getRawPath()));
+        List<Template> candidates = templates.get(method + " " + segments.length);
+        if (candidates == null) {
+            return UNKNOWN;
+        }
+        Template best = null;
+        int bestScore = -1;
+        for (Template template : candidates) {
+            int score = template.score(segments);
+            if (score > bestScore) {
+                best = template;
+                bestScore = score;
+            }
+        }
+        return best != null ? best.operationId : UNKNOWN;
+    }
+
+    /**
+     * The path from the version segment on, dropping the server's base path ({@code /rest})
+     */
+    private static String apiPath(String path) {
+        if (path == null) {
+            return "";
+        }
+        int version = path.indexOf("/v1");
+        return version >= 0 ? path.substring(version) : path;
+    }
+
+    private static String[] segments(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+
+    private record Template(String[] segments, String operationId) {
+
+        /** Number of literal segments matched, or -1 if the path does not fit the template */
+        int score(String[] path) {
+            int literals = 0;
+            for (int i = 0; i < segments.length; i++) {
+                if (isVariable(segments[i])) {
+                    continue;
+                }
+                if (!segments[i].equals(path[i])) {
+                    return -1;
+                }
+                literals++;
+            }
+            return literals;
+        }
+
+        boolean matchesTemplate(String[] other) {
+            for (int i = 0; i < segments.length; i++) {
+                if (isVariable(segments[i]) ? !isVariable(other[i]) : !segments[i].equals(other[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isVariable(String segment) {
+            return segment.startsWith("{");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.CanvaUsageAccounting;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds every observed outbound Canva call into {@link CanvaUsageAccounting}. The user is
+ * taken from the request context when the call starts (the context's own user id, e.g. for
+ * warm-up, or else its session's) and the team from the session. Reactive calls start with the
+ * subscriber's context bound, see {@link CanvaClientObservationFilter}.
+ */
+@Component
+public class CanvaUsageObservationHandler implements ObservationHandler<CanvaClientObservationContext> {
+
+    private final CanvaUsageAccounting accounting;
+
+    public CanvaUsageObservationHandler(CanvaUsageAccounting accounting) {
+        this.accounting = accounting;
+    }
+
+    @Override
+    public void onStart(CanvaClientObservationContext context) {
+        String userId = CanvaRequestContext.currentUserId();
+        HttpSession session = CanvaRequestContext.currentSession();
+        context.put(Caller.class, new Caller(userId, userId != null ? teamId(session) : null, System.nanoTime()));
+    }
+
+    @Override
+    public void onStop(CanvaClientObservationContext context) {
+        Caller caller = context.get(Caller.class);
+        if (caller == null) {
+            return;
+        }
+        Integer status = context.getResponse();
+        accounting.record(caller.userId, caller.teamId, context.getPath(), System.nanoTime() - caller.startNanos,
+                context.getRequestBytes(), context.getResponseBytes(), status != null ? status : 0);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof CanvaClientObservationContext;
+    }
+
+    private static String teamId(HttpSession session) {
+        if (session == null) {
+            return null;
+        }
+        try {
+            return (String) session.getAttribute("team_id");
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private record Caller(String userId, String teamId, long startNanos) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CookieHttpSession;
+import com.example.demo.service.SessionCookieCodec;
+import com.example.demo.service.TokenRefreshManager;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Replaces the servlet container's session with a {@link CookieHttpSession} when
+ * {@code canva.session.mode=cookie}. No per-user state stays on the server, so any node can
+ * serve any request without sticky sessions.
+ * <p>
+ * The session cookie has to be set before the response is committed, so it is written the
+ * first time the handler starts the body, redirects or errors, or at the latest when the
+ * chain returns. Changes made to the session after that point are not persisted.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 50)
+@ConditionalOnProperty(name = "canva.session.mode", havingValue = "cookie")
+public class CookieSessionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CookieSessionFilter.class);
+
+    private final SessionCookieCodec codec;
+    private final TokenRefreshManager tokenRefreshManager;
+
+    public CookieSessionFilter(SessionCookieCodec codec, TokenRefreshManager tokenRefreshManager) {
+        this.codec = codec;
+        this.tokenRefreshManager = tokenRefreshManager;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CookieSessionRequest sessionRequest = new CookieSessionRequest(request);
+        CookieSessionResponse sessionResponse = new CookieSessionResponse(response, sessionRequest);
+
+        HttpSession existing = sessionRequest.getSession(false);
+        if (existing != null) {
+            // Cookie sessions cannot be refreshed in the background
+            tokenRefreshManager.refreshIfDue(existing);
+        }
+
+        try {
+            filterChain.doFilter(sessionRequest, sessionResponse);
+        } finally {
+            sessionResponse.writeSessionCookie();
+        }
+    }
+
+    private final class CookieSessionRequest extends HttpServletRequestWrapper {
+
+        private final int requestChunks;
+        private CookieHttpSession session;
+        private boolean read;
+        private boolean created;
+
+        CookieSessionRequest(HttpServletRequest request) {
+            super(request);
+            this.requestChunks = codec.countChunks(request.getCookies());
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (!read) {
+                session = codec.read(getCookies(), getServletContext());
+                read = true;
+            }
+            if (session.isInvalidated()) {
+                if (!create) {
+                    return null;
+                }
+                session = codec.create(getServletContext());
+            }
+            if (session.isNew() && !created) {
+                if (!create) {
+                    return null;
+                }
+                created = true;
+            }
+            return session;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String changeSessionId() {
+            return getSession(true).getId();
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            return read && session != null && !session.isNew();
+        }
+    }
+
+    private final class CookieSessionResponse extends HttpServletResponseWrapper {
+
+        private final CookieSessionRequest request;
+        private boolean written;
+
+        CookieSessionResponse(HttpServletResponse response, CookieSessionRequest request) {
+            super(response);
+            this.request = request;
+        }
+
+        void writeSessionCookie() {
+            if (written) {
+                return;
+            }
+            written = true;
+
+            CookieHttpSession session = request.session;
+            if (session == null) {
+                return;
+            }
+            // Another request may have refreshed the tokens since this one read its cookie
+            tokenRefreshManager.catchUp(session);
+            // A fresh session replacing stale or invalidated cookies is written to overwrite them
+            if (!codec.needsWrite(session) && !(session.isNew() && request.requestChunks > 0)) {
+                return;
+            }
+            if (isCommitted()) {
+                logger.warn("Response committed before the session cookie could be written");
+                return;
+            }
+            for (Cookie cookie : codec.write(session, request.requestChunks)) {
+                addCookie(cookie);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeSessionCookie();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeSessionCookie();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeSessionCookie();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeSessionCookie();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeSessionCookie();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeSessionCookie();
+            super.flushBuffer();
+        }
+    }
+}
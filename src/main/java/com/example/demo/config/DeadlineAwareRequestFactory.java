@@ -0,0 +1,54 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.Deadline;
+import com.example.demo.service.DeadlineExceededException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Request factory for outbound Canva calls whose read timeout is the remaining budget of
+ * the current request deadline, capped by a default so no call can hang indefinitely.
+ * Calls attempted after the deadline has passed fail immediately without touching the network.
+ */
+public class DeadlineAwareRequestFactory implements ClientHttpRequestFactory {
+
+    private final HttpClient httpClient;
+    private final Executor executor;
+    private final Duration defaultReadTimeout;
+
+    public DeadlineAwareRequestFactory(HttpClient httpClient, Executor executor, Duration defaultReadTimeout) {
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.defaultReadTimeout = defaultReadTimeout;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        Duration timeout = defaultReadTimeout;
+
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException("Request deadline exceeded before " + httpMethod + " " + uri.getPath());
+            }
+            Duration remaining = deadline.remaining();
+            if (remaining.compareTo(timeout) < 0) {
+                timeout = remaining;
+            }
+        }
+
+        // The JDK factory is a thin holder around the shared client, so one per call is cheap
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, executor);
+        requestFactory.setReadTimeout(timeout);
+        return requestFactory.createRequest(uri, httpMethod);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.config;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects finished spans locally, so traces can be inspected without a tracing backend.
+ * The most recent spans are kept in memory (see {@code /api/admin/traces}); with
+ * {@code canva.tracing.file} set, every span is also appended to that file as one JSON line.
+ * File writes happen on a background thread and are dropped if it falls behind.
+ */
+@Component
+public class LocalSpanExporter extends SpanHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalSpanExporter.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int capacity;
+    private final Deque<ExportedSpan> recent = new ArrayDeque<>();
+    private final BufferedWriter fileWriter;
+    private final ThreadPoolExecutor fileExecutor;
+
+    public LocalSpanExporter(@Value("${canva.tracing.memory-capacity:10000}") int capacity,
+                             @Value("${canva.tracing.file:}") String file) throws IOException {
+        this.capacity = capacity;
+        if (file.isBlank()) {
+            this.fileWriter = null;
+            this.fileExecutor = null;
+            return;
+        }
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.fileWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.fileExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10_000),
+                Thread.ofPlatform().name("span-file-exporter").daemon(true).factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        logger.info("Exporting spans to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause != Cause.FINISHED) {
+            return true;
+        }
+        ExportedSpan exported = ExportedSpan.of(context, span);
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(exported);
+        }
+        if (fileExecutor != null) {
+            fileExecutor.execute(() -> write(exported));
+        }
+        return true;
+    }
+
+    /**
+     * Most recent finished spans, newest first
+     */
+    public List<ExportedSpan> recent(int limit) {
+        List<ExportedSpan> result = new ArrayList<>(Math.clamp(limit, 0, capacity));
+        synchronized (recent) {
+            Iterator<ExportedSpan> spans = recent.descendingIterator();
+            while (spans.hasNext() && result.size() < limit) {
+                result.add(spans.next());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Spans of one trace still held in memory, in start order
+     */
+    public List<ExportedSpan> trace(String traceId) {
+        List<ExportedSpan> result = new ArrayList<>();
+        synchronized (recent) {
+            for (ExportedSpan span : recent) {
+                if (span.traceId().equals(traceId)) {
+                    result.add(span);
+                }
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.startMicros(), b.startMicros()));
+        return result;
+    }
+
+    public void clear() {
+        synchronized (recent) {
+            recent.clear();
+        }
+    }
+
+    private void write(ExportedSpan span) {
+        try {
+            fileWriter.write(objectMapper.writeValueAsString(span));
+            fileWriter.newLine();
+            if (fileExecutor.getQueue().isEmpty()) {
+                fileWriter.flush();
+            }
+        } catch (JsonProcessingException e) {
+            logger.debug("Failed to serialize span {}: {}", span.spanId(), e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Failed to write span to file: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (fileExecutor == null) {
+            return;
+        }
+        fileExecutor.shutdown();
+        fileExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        fileWriter.close();
+    }
+
+    public record ExportedSpan(String traceId, String spanId, String parentId, String name, String kind,
+                               long startMicros, long durationMicros, Map<String, String> tags, String error) {
+
+        static ExportedSpan of(TraceContext context, MutableSpan span) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            span.forEachTag((target, key, value) -> target.put(key, value), tags);
+            return new ExportedSpan(context.traceIdString(), context.spanIdString(), context.parentIdString(),
+                    span.name(), span.kind() != null ? span.kind().name() : null,
+                    span.startTimestamp(), span.finishTimestamp() - span.startTimestamp(), tags,
+                    span.error() != null ? span.error().toString() : span.tag("error"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.config;
+
+import com.example.demo.service.TokenRefreshManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking WebClients for the generated reactive Canva clients. All calls share one
+ * Reactor Netty connection pool, so thousands of concurrent upstream calls run on a handful
+ * of event-loop threads instead of one thread each.
+ */
+@Configuration
+public class ReactiveCanvaApiConfig {
+
+    @Value("${canva.api.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${canva.api.read-timeout:30s}")
+    private Duration readTimeout;
+
+    @Value("${canva.reactive.max-connections:1000}")
+    private int maxConnections;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider canvaConnectionProvider() {
+        return ConnectionProvider.builder("canva")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .build();
+    }
+
+    @Bean
+    public ReactorClientHttpConnector canvaClientHttpConnector(ConnectionProvider canvaConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(canvaConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    /**
+     * Retries reactive calls that fail with 401 once, after refreshing the session's token
+     */
+    @Bean
+    public TokenRefreshFilter tokenRefreshFilter(TokenRefreshManager tokenRefreshManager, MeterRegistry meterRegistry) {
+        return new TokenRefreshFilter(tokenRefreshManager, meterRegistry);
+    }
+
+    /**
+     * WebClient for the public Connect API, built from the generated client's defaults so the
+     * generated models keep their Jackson configuration
+     */
+    @Bean
+    public WebClient canvaWebClient(ReactorClientHttpConnector canvaClientHttpConnector,
+                                    ObservationRegistry observationRegistry,
+                                    CanvaOperationResolver canvaOperationResolver,
+                                    CanvaFlightRecorder canvaFlightRecorder,
+                                    TokenRefreshFilter tokenRefreshFilter) {
+        return new com.example.demo.canva.reactive.client.ApiClient().getWebClient().mutate()
+                .clientConnector(canvaClientHttpConnector)
+                // Outermost, so a retry with a refreshed token is observed and recorded again
+                .filter(tokenRefreshFilter)
+                .filter(new CanvaClientObservationFilter(observationRegistry, canvaOperationResolver, "connect"))
+                .filter(new CanvaFlightRecorderFilter(canvaFlightRecorder, canvaOperationResolver, "connect"))
+                .build();
+    }
+
+    /**
+     * WebClient for the private API, configured the same way as {@link #canvaWebClient}
+     */
+    @Bean
+    public WebClient canvaPrivateWebClient(ReactorClientHttpConnector canvaClientHttpConnector,
+                                           ObservationRegistry observationRegistry,
+                                           CanvaOperationResolver canvaOperationResolver,
+                                           CanvaFlightRecorder canvaFlightRecorder,
+                                           TokenRefreshFilter tokenRefreshFilter) {
+        return new com.example.demo.canva.reactive.privateclient.ApiClient().getWebClient().mutate()
+                .clientConnector(canvaClientHttpConnector)
+                .filter(tokenRefreshFilter)
+                .filter(new CanvaClientObservationFilter(observationRegistry, canvaOperationResolver, "private"))
+                .filter(new CanvaFlightRecorderFilter(canvaFlightRecorder, canvaOperationResolver, "private"))
+                .build();
+    }
+}
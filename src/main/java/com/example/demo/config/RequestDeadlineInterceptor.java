@@ -0,0 +1,60 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.Deadline;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Sets the request deadline and session at the controller boundary. Every outbound Canva call made while
+ * handling the request uses the remaining budget as its timeout.
+ * Clients may ask for a shorter budget with the {@code X-Request-Timeout} header (milliseconds).
+ * When a handler returns an async result ({@code Mono}, {@code Callable}) the context is cleared
+ * as soon as the container thread is released, so the next request on it starts clean.
+ */
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration requestTimeout;
+
+    public RequestDeadlineInterceptor(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Duration timeout = requestTimeout;
+
+        String requested = request.getHeader(TIMEOUT_HEADER);
+        if (requested != null && !requested.isEmpty()) {
+            try {
+                Duration clientTimeout = Duration.ofMillis(Long.parseLong(requested.trim()));
+                if (!clientTimeout.isNegative() && clientTimeout.compareTo(timeout) < 0) {
+                    timeout = clientTimeout;
+                }
+            } catch (NumberFormatException e) {
+                // Ignore malformed values and keep the server default
+            }
+        }
+
+        HttpSession session = request.getSession(false);
+        CanvaRequestContext.set(new CanvaRequestContext(Deadline.after(timeout), session));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // afterCompletion only runs after the async dispatch, on whichever thread handles it
+        CanvaRequestContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CanvaRequestContext.clear();
+    }
+}
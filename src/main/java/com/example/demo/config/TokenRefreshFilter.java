@@ -0,0 +1,76 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.TokenRefreshManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Reactive counterpart of {@link TokenRefreshInterceptor}: retries a Canva call once with a
+ * refreshed token when it fails with 401. The session comes from the request context carried
+ * in the Reactor context; the refresh itself blocks, so it runs on the bounded elastic
+ * scheduler rather than the event loop.
+ * <p>
+ * Registered as the outermost filter, so the retry passes through the observation and flight
+ * recorder filters again and is recorded as a call of its own, tagged {@code retry}.
+ */
+public class TokenRefreshFilter implements ExchangeFilterFunction {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenRefreshManager refreshManager;
+    private final Counter retries;
+
+    public TokenRefreshFilter(TokenRefreshManager refreshManager, MeterRegistry meterRegistry) {
+        this.refreshManager = refreshManager;
+        this.retries = Counter.builder("canva.client.retries")
+                .description("Canva calls sent again after a failed attempt")
+                .tag("reason", "token_refresh")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return next.exchange(request).flatMap(response -> {
+            if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value()) {
+                return Mono.just(response);
+            }
+            return Mono.deferContextual(reactorContext -> {
+                CanvaRequestContext caller = reactorContext.getOrDefault(CanvaRequestContext.class, null);
+                HttpSession session = caller != null ? caller.getSession() : null;
+                String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+                if (session == null || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+                    return Mono.just(response);
+                }
+
+                String staleToken = authorization.substring(BEARER_PREFIX.length());
+                return Mono.fromCallable(() -> Optional.ofNullable(
+                                CanvaRequestContext.callWith(caller, () -> refreshManager.refresh(session, staleToken))))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(freshToken -> {
+                            if (freshToken.isEmpty() || freshToken.get().equals(staleToken)) {
+                                return Mono.just(response);
+                            }
+                            retries.increment();
+                            ClientRequest retry = ClientRequest.from(request)
+                                    .headers(headers -> headers.set(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + freshToken.get()))
+                                    .build();
+                            return response.releaseBody()
+                                    .then(Mono.defer(() -> next.exchange(retry)))
+                                    .contextWrite(context -> context.put(CanvaRequestContext.class, caller.withAttempt("retry")));
+                        });
+            });
+        });
+    }
+}
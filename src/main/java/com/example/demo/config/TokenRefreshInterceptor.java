@@ -0,0 +1,108 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.TokenRefreshManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Retries a Canva call once with a refreshed token when it fails with 401 because the
+ * session's access token expired. Only applies to calls made on behalf of a session holding
+ * a refresh token; any other 401 is returned unchanged.
+ * <p>
+ * Registered as the client's last interceptor: the RestClient walks its interceptors with a
+ * single iterator per request, so only the innermost one can send a request twice and still
+ * reach the wire. Interceptors that should see each attempt separately, such as observation
+ * and the flight recorder, are passed in and run around every attempt here instead.
+ */
+public class TokenRefreshInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenRefreshManager refreshManager;
+    private final Counter retries;
+    private final List<ClientHttpRequestInterceptor> perAttempt;
+
+    public TokenRefreshInterceptor(TokenRefreshManager refreshManager, MeterRegistry meterRegistry,
+                                   ClientHttpRequestInterceptor... perAttempt) {
+        this.refreshManager = refreshManager;
+        this.perAttempt = List.of(perAttempt);
+        this.retries = Counter.builder("canva.client.retries")
+                .description("Canva calls sent again after a failed attempt")
+                .tag("reason", "token_refresh")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        ClientHttpResponse response = new AttemptExecution(execution).execute(request, body);
+        if (response.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+            return response;
+        }
+
+        HttpSession session = CanvaRequestContext.currentSession();
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (session == null || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return response;
+        }
+
+        String staleToken = authorization.substring(BEARER_PREFIX.length());
+        String freshToken = refreshManager.refresh(session, staleToken);
+        if (freshToken == null || freshToken.equals(staleToken)) {
+            return response;
+        }
+
+        response.close();
+        retries.increment();
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        headers.setBearerAuth(freshToken);
+        HttpRequest retry = new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+        CanvaRequestContext previous = CanvaRequestContext.current();
+        CanvaRequestContext.set((previous != null ? previous : new CanvaRequestContext(null)).withAttempt("retry"));
+        try {
+            return new AttemptExecution(execution).execute(retry, body);
+        } finally {
+            CanvaRequestContext.set(previous);
+        }
+    }
+
+    /**
+     * One attempt: the per-attempt interceptors in order, then the client's own execution,
+     * which sends the request since this interceptor is the last one registered
+     */
+    private final class AttemptExecution implements ClientHttpRequestExecution {
+
+        private final Iterator<ClientHttpRequestInterceptor> interceptors = perAttempt.iterator();
+        private final ClientHttpRequestExecution delegate;
+
+        AttemptExecution(ClientHttpRequestExecution delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClientHttpResponse execute(HttpRequest request, byte[] body) throws IOException {
+            if (interceptors.hasNext()) {
+                return interceptors.next().intercept(request, body, this);
+            }
+            return delegate.execute(request, body);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Value("${canva.api.request-timeout:15s}")
+    private Duration requestTimeout;
+
+    @Value("${canva.admin.token:}")
+    private String adminToken;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdminAccessInterceptor(adminToken)).addPathPatterns("/api/admin/**");
+        registry.addInterceptor(new RequestDeadlineInterceptor(requestTimeout));
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.CanvaFlightRecorder;
+import com.example.demo.config.CanvaFlightRecorder.CallRecord;
+import com.example.demo.config.LocalSpanExporter;
+import com.example.demo.config.LocalSpanExporter.ExportedSpan;
+import com.example.demo.service.CanvaUsageAccounting;
+import com.example.demo.service.JfrRecordingService;
+import com.example.demo.service.SessionRosterStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final SessionRosterStore rosterStore;
+    private final LocalSpanExporter spanExporter;
+    private final CanvaFlightRecorder flightRecorder;
+    private final JfrRecordingService jfrRecording;
+    private final CanvaUsageAccounting usageAccounting;
+
+    public AdminController(SessionRosterStore rosterStore, LocalSpanExporter spanExporter,
+                           CanvaFlightRecorder flightRecorder, JfrRecordingService jfrRecording,
+                           CanvaUsageAccounting usageAccounting) {
+        this.rosterStore = rosterStore;
+        this.spanExporter = spanExporter;
+        this.flightRecorder = flightRecorder;
+        this.jfrRecording = jfrRecording;
+        this.usageAccounting = usageAccounting;
+    }
+
+    /**
+     * GET /api/admin/sessions/memory
+     * Memory held per session by saved rosters, with the heap for context
+     */
+    @GetMapping("/sessions/memory")
+    public ResponseEntity<Map<String, Object>> sessionMemory() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rosters", rosterStore.memoryReport());
+        result.put("heapUsedBytes", heap.getUsed());
+        result.put("heapMaxBytes", heap.getMax());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /api/admin/traces?limit=100
+     * Most recent finished spans held in memory, newest first
+     */
+    @GetMapping("/traces")
+    public ResponseEntity<List<ExportedSpan>> recentSpans(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(spanExporter.recent(limit));
+    }
+
+    /**
+     * GET /api/admin/traces/{traceId}
+     * All spans of one trace still held in memory, in start order
+     */
+    @GetMapping("/traces/{traceId}")
+    public ResponseEntity<List<ExportedSpan>> trace(@PathVariable String traceId) {
+        List<ExportedSpan> spans = spanExporter.trace(traceId);
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+
+    /**
+     * GET /api/admin/flight-recorder?user=...&operation=...&status=5xx&minLatencyMs=500&limit=100
+     * Recent upstream Canva calls matching every given filter, newest first. {@code status} is
+     * a code, a class like {@code 4xx}, or {@code error} for calls that got no response.
+     */
+    @GetMapping("/flight-recorder")
+    public ResponseEntity<List<CallRecord>> flightRecorder(@RequestParam(required = false) String user,
+                                                           @RequestParam(required = false) String operation,
+                                                           @RequestParam(required = false) String status,
+                                                           @RequestParam(required = false) Long minLatencyMs,
+                                                           @RequestParam(defaultValue = "100") int limit) {
+        CanvaFlightRecorder.Filter filter = new CanvaFlightRecorder.Filter(user, operation, status,
+                minLatencyMs != null ? Duration.ofMillis(minLatencyMs) : null, limit);
+        return ResponseEntity.ok(flightRecorder.query(filter));
+    }
+
+    /**
+     * GET /api/admin/jfr
+     * State of the continuous JFR recording
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<Map<String, Object>> jfrStatus() {
+        return ResponseEntity.ok(jfrRecording.status());
+    }
+
+    /**
+     * POST /api/admin/jfr/start?settings=profile
+     * Start a continuous JFR recording with the JDK's {@code default} or {@code profile} settings
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<Map<String, Object>> startJfr(@RequestParam(defaultValue = "profile") String settings)
+            throws IOException, ParseException {
+        if (!settings.equals("default") && !settings.equals("profile")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "settings must be 'default' or 'profile'"));
+        }
+        if (!jfrRecording.start(settings)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "A recording is already running"));
+        }
+        return ResponseEntity.ok(jfrRecording.status());
+    }
+
+    /**
+     * POST /api/admin/jfr/stop
+     */
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<Map<String, Object>> stopJfr() {
+        if (!jfrRecording.stop()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "No recording is running"));
+        }
+        return ResponseEntity.ok(jfrRecording.status());
+    }
+
+    /**
+     * POST /api/admin/jfr/dump
+     * Download what has been recorded so far as a .jfr file, for JDK Mission Control or
+     * {@code jfr print}. The dump is streamed from a temporary file that is deleted afterwards.
+     */
+    @PostMapping("/jfr/dump")
+    public ResponseEntity<StreamingResponseBody> dumpJfr() throws IOException {
+        Path file = jfrRecording.dump();
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"canva.jfr\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/admin/usage?sort=bytes_in&limit=20&family=autofills&groupBy=team
+     * Top users (or teams) by upstream usage since start-up or the last reset. {@code sort} is
+     * one of calls, bytes_in, bytes_out, latency, rate_limited, errors.
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<?> usage(@RequestParam(defaultValue = "calls") String sort,
+                                   @RequestParam(defaultValue = "20") int limit,
+                                   @RequestParam(required = false) String family,
+                                   @RequestParam(defaultValue = "user") String groupBy) {
+        CanvaUsageAccounting.Sort order;
+        try {
+            order = CanvaUsageAccounting.Sort.valueOf(sort.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown sort: " + sort));
+        }
+        return ResponseEntity.ok(usageAccounting.top(order, limit, family, "team".equalsIgnoreCase(groupBy)));
+    }
+
+    /**
+     * DELETE /api/admin/usage
+     * Start a new accounting period
+     */
+    @DeleteMapping("/usage")
+    public ResponseEntity<Void> resetUsage() {
+        usageAccounting.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
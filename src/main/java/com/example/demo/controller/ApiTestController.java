@@ -10,6 +10,13 @@ import com.example.demo.canva.model.CreateDesignRequest;
 import com.example.demo.canva.model.CreateDesignResponse;
 import com.example.demo.canva.model.PresetDesignTypeName;
 import com.example.demo.canva.privateapi.BrandKitApi;
+import com.example.demo.service.CanvaCatalogService;
+import com.example.demo.service.CanvaClientFactory;
+import com.example.demo.service.CanvaRequestHedger;
+import com.example.demo.service.DashboardService;
+import com.example.demo.service.IdempotencyConflictException;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.IdentityCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
@@ -22,6 +29,7 @@ import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.HashMap;
@@ -36,7 +44,39 @@ public class ApiTestController {
     @Value("${canva.api.base-url:https://api.canva.com/rest}")
     private String baseUrl;
 
-    public ApiTestController() {
+    @Value("${canva.idempotency.window:10m}")
+    private Duration idempotencyWindow;
+
+    private final DashboardService dashboardService;
+    private final CanvaClientFactory canvaClients;
+    private final CanvaRequestHedger hedger;
+    private final IdentityCache identityCache;
+    private final CanvaCatalogService catalog;
+    private final IdempotencyService idempotency;
+
+    public ApiTestController(DashboardService dashboardService, CanvaClientFactory canvaClients, CanvaRequestHedger hedger,
+                             IdentityCache identityCache, CanvaCatalogService catalog, IdempotencyService idempotency) {
+        this.dashboardService = dashboardService;
+        this.canvaClients = canvaClients;
+        this.hedger = hedger;
+        this.identityCache = identityCache;
+        this.catalog = catalog;
+        this.idempotency = idempotency;
+    }
+
+    @PostMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> testLoadDashboard(HttpSession session) {
+        // Check if user is authenticated
+        String accessToken = (String) session.getAttribute("access_token");
+        if (accessToken == null || accessToken.isEmpty()) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("error", "Not authenticated");
+            result.put("message", "Please connect to Canva first");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+        }
+
+        // Profile, capabilities, designs, brand templates and brand kits are fetched concurrently
+        return ResponseEntity.ok(dashboardService.loadDashboard(IdentityCache.userId(session), accessToken));
     }
 
     @PostMapping("/profile")
@@ -75,16 +115,14 @@ public class ApiTestController {
 
         try {
             // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            // Add bearer token as default header instead of using setBearerToken
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             UserApi userApi = new UserApi(apiClient);
 
-            // Make the API call
+            // Make the API call; the profile is cached per user, so repeat calls do not go upstream
             long startTime = System.currentTimeMillis();
-            UserProfileResponse profile = userApi.getUserProfile();
+            UserProfileResponse profile = identityCache.get(IdentityCache.userId(session),
+                    IdentityCache.Kind.PROFILE, userApi::getUserProfile);
             long duration = System.currentTimeMillis() - startTime;
 
             // Prepare response details
@@ -176,9 +214,7 @@ public class ApiTestController {
 
         try {
             // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             DesignApi designApi = new DesignApi(apiClient);
 
@@ -301,15 +337,13 @@ public class ApiTestController {
 
         try {
             // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             DesignApi designApi = new DesignApi(apiClient);
 
-            // Make the API call
+            // Make the API call (hedged when enabled, as it is an idempotent GET)
             long startTime = System.currentTimeMillis();
-            GetDesignResponse design = designApi.getDesign(designId);
+            GetDesignResponse design = hedger.execute("getDesign", () -> designApi.getDesign(designId));
             long duration = System.currentTimeMillis() - startTime;
 
             // Prepare response details
@@ -410,16 +444,11 @@ public class ApiTestController {
         result.put("request", requestDetails);
 
         try {
-            // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
-
-            BrandTemplateApi brandTemplateApi = new BrandTemplateApi(apiClient);
-
-            // Make the API call with query and ownership parameters
+            // Make the API call with query and ownership parameters; cached per user and
+            // usually already warm right after login
             long startTime = System.currentTimeMillis();
-            ListBrandTemplatesResponse templates = brandTemplateApi.listBrandTemplates(query, null, ownershipType, null, null);
+            ListBrandTemplatesResponse templates = catalog.listBrandTemplates(IdentityCache.userId(session),
+                    accessToken, query, ownershipType);
             long duration = System.currentTimeMillis() - startTime;
 
             // Prepare response details
@@ -532,9 +561,7 @@ public class ApiTestController {
 
         try {
             // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             BrandTemplateApi brandTemplateApi = new BrandTemplateApi(apiClient);
 
@@ -622,19 +649,9 @@ public class ApiTestController {
         result.put("request", requestDetails);
 
         try {
-            // Create API client with session token
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
-
-            // Make the API call directly using RestClient to get raw JSON
+            // Fetch the raw JSON (cached per user)
             long startTime = System.currentTimeMillis();
-            String rawResponse = apiClient.getRestClient()
-                .get()
-                .uri(baseUrl + "/v1/brand-templates/" + brandTemplateId + "/dataset")
-                .header("Authorization", "Bearer " + accessToken)
-                .retrieve()
-                .body(String.class);
+            String rawResponse = catalog.getBrandTemplateDataset(IdentityCache.userId(session), accessToken, brandTemplateId);
             long duration = System.currentTimeMillis() - startTime;
 
             // Prepare response details
@@ -703,9 +720,7 @@ public class ApiTestController {
 
         try {
             // Configure API client
-            com.example.demo.canva.privateclient.ApiClient apiClient = new com.example.demo.canva.privateclient.ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            com.example.demo.canva.privateclient.ApiClient apiClient = canvaClients.privateApiClient(accessToken);
 
             // Create the API instance
             BrandKitApi brandKitApi = new BrandKitApi(apiClient);
@@ -796,17 +811,6 @@ public class ApiTestController {
         }
 
         try {
-            // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
-
-            // Build URI with optional query parameter
-            String uri = baseUrl + "/v1/folders/" + folderId + "/items";
-            if (item_types != null && !item_types.isEmpty()) {
-                uri += "?item_types=" + item_types;
-            }
-
             // Store request details
             Map<String, Object> requestDetails = new HashMap<>();
             requestDetails.put("method", "GET");
@@ -826,14 +830,9 @@ public class ApiTestController {
             requestDetails.put("headers", folderItemsHeadersMap);
             result.put("request", requestDetails);
 
-            // Make the API call using raw JSON to avoid deserialization issues
+            // Make the API call using raw JSON to avoid deserialization issues (cached per user)
             long startTime = System.currentTimeMillis();
-            String rawResponse = apiClient.getRestClient()
-                .get()
-                .uri(uri)
-                .header("Authorization", "Bearer " + accessToken)
-                .retrieve()
-                .body(String.class);
+            String rawResponse = catalog.listFolderItems(IdentityCache.userId(session), accessToken, folderId, item_types);
             long duration = System.currentTimeMillis() - startTime;
 
             // Parse the raw JSON
@@ -925,9 +924,7 @@ public class ApiTestController {
             result.put("request", requestDetails);
 
             // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             long startTime = System.currentTimeMillis();
 
@@ -947,6 +944,9 @@ public class ApiTestController {
                 .toEntity(String.class);
             long duration = System.currentTimeMillis() - startTime;
 
+            // Cached folder listings no longer match
+            catalog.invalidateFolders(IdentityCache.userId(session));
+
             // Prepare response details
             Map<String, Object> responseDetails = new HashMap<>();
             responseDetails.put("statusCode", response.getStatusCode().value());
@@ -1054,9 +1054,7 @@ public class ApiTestController {
             result.put("request", requestDetails);
 
             // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             // Prepare the request manually since we need to send raw bytes
             String uri = baseUrl + "/v1/asset-uploads";
@@ -1153,6 +1151,7 @@ public class ApiTestController {
             @RequestParam(required = false) String sourceBrandTemplateId,
             @RequestParam(required = false) java.util.List<Integer> pageNumbers,
             @RequestHeader(value = "X-Canva-Component-Variants", required = false) String componentVariants,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             HttpSession session) {
         Map<String, Object> result = new HashMap<>();
 
@@ -1203,21 +1202,29 @@ public class ApiTestController {
         requestDetails.put("headers", headersMap);
         result.put("request", requestDetails);
 
+        // Double-clicks and retries of the same request return the design created the first time
+        String userId = IdentityCache.userId(session);
+        String fingerprint = IdempotencyService.fingerprint(bodyParams, componentVariants);
+
         try {
             long startTime = System.currentTimeMillis();
-            org.springframework.web.client.RestClient restClient = org.springframework.web.client.RestClient.create();
-            org.springframework.web.client.RestClient.RequestBodySpec requestSpec = restClient.post()
-                    .uri(baseUrl + "/v1/designs")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .contentType(org.springframework.http.MediaType.APPLICATION_JSON);
-            if (componentVariants != null && !componentVariants.isEmpty()) {
-                requestSpec = requestSpec.header("X-Canva-Component-Variants", componentVariants);
-            }
-            @SuppressWarnings("unchecked")
-            Map<String, Object> rawResponse = requestSpec
-                    .body(bodyParams)
-                    .retrieve()
-                    .body(Map.class);
+            IdempotencyService.Outcome<Map<String, Object>> outcome = idempotency.execute("create-design",
+                    userId != null ? userId : session.getId(), idempotencyKey, fingerprint, idempotencyWindow, () -> {
+                org.springframework.web.client.RestClient.RequestBodySpec requestSpec = canvaClients.restClient().post()
+                        .uri(baseUrl + "/v1/designs")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(org.springframework.http.MediaType.APPLICATION_JSON);
+                if (componentVariants != null && !componentVariants.isEmpty()) {
+                    requestSpec = requestSpec.header("X-Canva-Component-Variants", componentVariants);
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> created = requestSpec
+                        .body(bodyParams)
+                        .retrieve()
+                        .body(Map.class);
+                return created;
+            });
+            Map<String, Object> rawResponse = outcome.value();
             long duration = System.currentTimeMillis() - startTime;
 
             Map<String, Object> responseDetails = new HashMap<>();
@@ -1228,6 +1235,7 @@ public class ApiTestController {
             responseDetails.put("body", rawResponse);
             result.put("response", responseDetails);
             result.put("success", true);
+            result.put("replayed", outcome.replayed());
 
             if (rawResponse != null && rawResponse.containsKey("design")) {
                 @SuppressWarnings("unchecked")
@@ -1246,6 +1254,11 @@ public class ApiTestController {
 
             return ResponseEntity.ok(result);
 
+        } catch (IdempotencyConflictException e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(result);
+
         } catch (RestClientResponseException e) {
             Map<String, Object> responseDetails = new HashMap<>();
             responseDetails.put("statusCode", e.getStatusCode().value());
@@ -1307,9 +1320,7 @@ public class ApiTestController {
 
         try {
             // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             AssetApi assetApi = new AssetApi(apiClient);
 
@@ -2,6 +2,8 @@ package com.example.demo.controller;
 
 import com.example.demo.canva.model.*;
 import com.example.demo.service.CanvaService;
+import com.example.demo.service.IdentityCache;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,8 +24,8 @@ public class CanvaController {
      * Get the current user's profile
      */
     @GetMapping("/user/profile")
-    public ResponseEntity<UserProfileResponse> getUserProfile() {
-        UserProfileResponse profile = canvaService.getUserProfile();
+    public ResponseEntity<UserProfileResponse> getUserProfile(HttpSession session) {
+        UserProfileResponse profile = canvaService.getUserProfile(IdentityCache.userId(session));
         return ResponseEntity.ok(profile);
     }
 
@@ -32,8 +34,8 @@ public class CanvaController {
      * Get the current user's capabilities
      */
     @GetMapping("/user/capabilities")
-    public ResponseEntity<GetUserCapabilitiesResponse> getUserCapabilities() {
-        GetUserCapabilitiesResponse capabilities = canvaService.getUserCapabilities();
+    public ResponseEntity<GetUserCapabilitiesResponse> getUserCapabilities(HttpSession session) {
+        GetUserCapabilitiesResponse capabilities = canvaService.getUserCapabilities(IdentityCache.userId(session));
         return ResponseEntity.ok(capabilities);
     }
 
@@ -1,10 +1,19 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.CanvaCatalogService;
 import com.example.demo.service.CanvaOAuthService;
+import com.example.demo.service.DeadlineExceededException;
+import com.example.demo.service.IdentityCache;
 import com.example.demo.service.OAuthStateStore;
+import com.example.demo.service.PkceMaterialPool;
+import com.example.demo.service.PkceMaterialPool.PkceMaterial;
+import com.example.demo.service.PostLoginWarmer;
+import com.example.demo.service.StatelessOAuthState;
+import com.example.demo.service.TokenRefreshManager;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,12 +25,38 @@ import java.util.Map;
 public class OAuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(OAuthController.class);
+
+    /** State and code verifier of the login started in this session, as one attribute */
+    static final String PENDING_LOGIN_ATTRIBUTE = "oauth_pending";
+
     private final CanvaOAuthService oauthService;
     private final OAuthStateStore stateStore;
+    private final StatelessOAuthState statelessState;
+    private final PkceMaterialPool pkcePool;
+    private final TokenRefreshManager tokenRefreshManager;
+    private final IdentityCache identityCache;
+    private final CanvaCatalogService catalog;
+    private final PostLoginWarmer warmer;
+
+    /**
+     * "server" keeps the code verifier in the state store and session; "stateless" carries it
+     * encrypted inside the state parameter so any node can handle the redirect
+     */
+    @Value("${canva.oauth.state-mode:server}")
+    private String stateMode;
 
-    public OAuthController(CanvaOAuthService oauthService, OAuthStateStore stateStore) {
+    public OAuthController(CanvaOAuthService oauthService, OAuthStateStore stateStore,
+                           StatelessOAuthState statelessState, PkceMaterialPool pkcePool,
+                           TokenRefreshManager tokenRefreshManager, IdentityCache identityCache,
+                           CanvaCatalogService catalog, PostLoginWarmer warmer) {
         this.oauthService = oauthService;
         this.stateStore = stateStore;
+        this.statelessState = statelessState;
+        this.pkcePool = pkcePool;
+        this.tokenRefreshManager = tokenRefreshManager;
+        this.identityCache = identityCache;
+        this.catalog = catalog;
+        this.warmer = warmer;
     }
 
     /**
@@ -29,24 +64,31 @@ public class OAuthController {
      */
     @GetMapping("/oauth/authorize")
     public String authorize(HttpSession session) {
-        // Generate PKCE parameters
-        String codeVerifier = oauthService.generateCodeVerifier();
-        String codeChallenge = oauthService.generateCodeChallenge(codeVerifier);
-        String state = oauthService.generateState();
+        // Take precomputed PKCE parameters
+        PkceMaterial pkce = pkcePool.next();
+        String codeVerifier = pkce.codeVerifier();
+        String codeChallenge = pkce.codeChallenge();
+
+        if (isStateless()) {
+            String state = statelessState.encode(codeVerifier);
+            logger.info("OAuth flow initiated (stateless state)");
+            return "redirect:" + oauthService.buildAuthorizationUrl(codeChallenge, state);
+        }
 
-        // Store in both in-memory store (primary) and session (backup)
+        String state = pkce.state();
+
+        // Store in both in-memory store (primary) and session (backup). The session copy is one
+        // attribute, so a login started in another tab cannot pair this state with its verifier
         stateStore.store(state, codeVerifier);
-        session.setAttribute("code_verifier", codeVerifier);
-        session.setAttribute("oauth_state", state);
-        session.setAttribute("session_created_at", System.currentTimeMillis());
+        session.setAttribute(PENDING_LOGIN_ATTRIBUTE, Map.of(
+                "state", state,
+                "code_verifier", codeVerifier,
+                "created_at", Long.toString(System.currentTimeMillis())));
 
         logger.info("OAuth flow initiated");
         logger.info("Session ID: {}", session.getId());
         logger.info("Generated state: {}", state);
-        logger.info("Stored in memory store: true");
-        logger.info("Stored in session: code_verifier={}, oauth_state={}",
-                    session.getAttribute("code_verifier") != null,
-                    session.getAttribute("oauth_state") != null);
+        logger.info("Stored in memory store and session");
 
         // Build authorization URL and redirect
         String authorizationUrl = oauthService.buildAuthorizationUrl(codeChallenge, state);
@@ -77,16 +119,29 @@ public class OAuthController {
             return "oauth-error";
         }
 
-        // Get code_verifier from in-memory store first, then session as fallback
-        String codeVerifier = stateStore.getCodeVerifier(state);
-        boolean usedMemoryStore = (codeVerifier != null);
-
-        if (codeVerifier == null) {
-            logger.warn("Code verifier not found in memory store, trying session...");
-            codeVerifier = (String) session.getAttribute("code_verifier");
+        // Get code_verifier from in-memory store first, then session as fallback.
+        // Consuming it makes the state single-use even if the redirect is replayed.
+        String codeVerifier;
+        boolean usedMemoryStore;
+        if (isStateless()) {
+            codeVerifier = statelessState.decode(state);
+            usedMemoryStore = false;
+        } else {
+            codeVerifier = stateStore.consume(state);
+            usedMemoryStore = (codeVerifier != null);
+
+            // The session copy only serves this state, and is dropped as soon as it is redeemed
+            Map<String, String> pending = pendingLogin(session, state);
+            if (pending != null) {
+                session.removeAttribute(PENDING_LOGIN_ATTRIBUTE);
+            }
+            if (codeVerifier == null) {
+                logger.warn("Code verifier not found in memory store, trying session...");
+                codeVerifier = pending != null ? pending.get("code_verifier") : null;
+            }
         }
 
-        logger.info("Code verifier source: {}", usedMemoryStore ? "memory store" : "session");
+        logger.info("Code verifier source: {}", isStateless() ? "state parameter" : usedMemoryStore ? "memory store" : "session");
         logger.info("Code verifier found: {}", codeVerifier != null);
 
         if (codeVerifier == null) {
@@ -106,16 +161,30 @@ public class OAuthController {
             Map<String, Object> tokenResponse = oauthService.exchangeCodeForToken(code, codeVerifier);
 
             logger.info("Token exchange successful. Storing tokens in session.");
-            // Store tokens in session
-            session.setAttribute("access_token", tokenResponse.get("access_token"));
-            session.setAttribute("refresh_token", tokenResponse.get("refresh_token"));
-            session.setAttribute("expires_in", tokenResponse.get("expires_in"));
+            // Store tokens in session and schedule a refresh before they expire
+            tokenRefreshManager.register(session, tokenResponse);
 
             // Fetch user profile to get display name
             try {
+                String accessToken = (String) tokenResponse.get("access_token");
+
+                // The user id owns the user's saved teams and keys their cached identity
+                @SuppressWarnings("unchecked")
+                Map<String, Object> teamUser = (Map<String, Object>) oauthService
+                        .getCurrentUser(accessToken).get("team_user");
+                String userId = null;
+                if (teamUser != null) {
+                    userId = (String) teamUser.get("user_id");
+                    session.setAttribute(IdentityCache.USER_ID_ATTRIBUTE, userId);
+                    session.setAttribute("team_id", teamUser.get("team_id"));
+                }
+
+                // Prefetch what the formations page loads first while the user reads the success page
+                warmer.warm(userId, accessToken);
+
                 logger.info("Fetching user profile...");
-                Map<String, Object> userProfile = oauthService.getUserProfile((String) tokenResponse.get("access_token"));
-                String displayName = (String) userProfile.get("display_name");
+                String displayName = identityCache.get(userId, IdentityCache.Kind.DISPLAY_NAME,
+                        () -> (String) oauthService.getUserProfile(accessToken).get("display_name"));
                 session.setAttribute("display_name", displayName);
                 logger.info("User profile fetched successfully. Display name: {}", displayName);
 
@@ -128,12 +197,6 @@ public class OAuthController {
                 model.addAttribute("isAuthenticated", true);
             }
 
-            // Clean up PKCE parameters from both stores
-            stateStore.remove(state);
-            session.removeAttribute("code_verifier");
-            session.removeAttribute("oauth_state");
-            session.removeAttribute("session_created_at");
-
             // Pass token info to success page
             model.addAttribute("accessToken", tokenResponse.get("access_token"));
             model.addAttribute("expiresIn", tokenResponse.get("expires_in"));
@@ -146,17 +209,42 @@ public class OAuthController {
 
         } catch (Exception e) {
             logger.error("Token exchange failed", e);
+            if (DeadlineExceededException.isTimeout(e)) {
+                model.addAttribute("error", "token_exchange_timeout");
+                model.addAttribute("errorDescription", "Canva did not respond in time. Please try connecting again.");
+                return "oauth-error";
+            }
             model.addAttribute("error", "token_exchange_failed");
             model.addAttribute("errorDescription", e.getMessage());
             return "oauth-error";
         }
     }
 
+    /**
+     * The login pending in this session, if it was started for {@code state}
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> pendingLogin(HttpSession session, String state) {
+        if (state != null && session.getAttribute(PENDING_LOGIN_ATTRIBUTE) instanceof Map<?, ?> pending
+                && state.equals(pending.get("state"))) {
+            return (Map<String, String>) pending;
+        }
+        return null;
+    }
+
+    private boolean isStateless() {
+        return "stateless".equalsIgnoreCase(stateMode);
+    }
+
     /**
      * Logout - clear session
      */
     @GetMapping("/oauth/logout")
     public String logout(HttpSession session) {
+        // Signing out is the user's way to pick up profile changes, so drop their cached data
+        String userId = IdentityCache.userId(session);
+        identityCache.invalidate(userId);
+        catalog.invalidate(userId);
         session.invalidate();
         return "redirect:/";
     }
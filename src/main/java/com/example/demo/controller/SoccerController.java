@@ -6,6 +6,17 @@ import com.example.demo.canva.client.ApiClient;
 import com.example.demo.canva.model.CreateDesignAutofillJobRequest;
 import com.example.demo.canva.model.CreateDesignAutofillJobResponse;
 import com.example.demo.canva.model.GetBrandTemplateDatasetResponse;
+import com.example.demo.service.CanvaCatalogService;
+import com.example.demo.service.CanvaClientFactory;
+import com.example.demo.service.CanvaJfrEvents;
+import com.example.demo.service.CanvaJson;
+import com.example.demo.service.DeadlineExceededException;
+import com.example.demo.service.IdempotencyConflictException;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.ReactiveCanvaService;
+import com.example.demo.service.SessionRosterStore;
+import com.example.demo.service.TeamRoster;
+import com.example.demo.service.TeamRosterService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,13 +29,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 @Controller
 @RequestMapping("/soccer")
@@ -33,8 +54,32 @@ public class SoccerController {
     @Value("${canva.api.base-url:https://api.canva.com/rest}")
     private String baseUrl;
 
+    /** How long an unchanged template and roster keep returning the original autofill job */
+    @Value("${canva.idempotency.render-window:24h}")
+    private Duration renderWindow;
+
+    private final CanvaClientFactory canvaClients;
+    private final CanvaCatalogService catalog;
+    private final SessionRosterStore rosterStore;
+    private final TeamRosterService teamRosterService;
+    private final ReactiveCanvaService reactiveCanvaService;
+    private final IdempotencyService idempotency;
+    private final CanvaJson canvaJson;
+
+    public SoccerController(CanvaClientFactory canvaClients, CanvaCatalogService catalog, SessionRosterStore rosterStore,
+                            TeamRosterService teamRosterService, ReactiveCanvaService reactiveCanvaService,
+                            IdempotencyService idempotency, CanvaJson canvaJson) {
+        this.canvaClients = canvaClients;
+        this.catalog = catalog;
+        this.rosterStore = rosterStore;
+        this.teamRosterService = teamRosterService;
+        this.reactiveCanvaService = reactiveCanvaService;
+        this.idempotency = idempotency;
+        this.canvaJson = canvaJson;
+    }
+
     @GetMapping("/team")
-    public String team(Model model, HttpSession session) {
+    public String team(@RequestParam(required = false) String name, Model model, HttpSession session) {
         // Check if user is authenticated
         String accessToken = (String) session.getAttribute("access_token");
         boolean isAuthenticated = accessToken != null && !accessToken.isEmpty();
@@ -43,27 +88,29 @@ public class SoccerController {
         model.addAttribute("isAuthenticated", isAuthenticated);
         model.addAttribute("displayName", displayName);
 
-        // Retrieve team data from session if exists
-        @SuppressWarnings("unchecked")
-        Map<String, String> teamData = (Map<String, String>) session.getAttribute("team_data");
-
-        // Pre-populate with default values if no data exists in session
-        if (teamData == null) {
-            teamData = new HashMap<>();
-            teamData.put("teamName", "All stars");
-            teamData.put("goalkeeper", "Marcos");
-            teamData.put("centerBack1", "Gamarra");
-            teamData.put("centerBack2", "Thiago Silva");
-            teamData.put("leftBack", "Roberto Carlos");
-            teamData.put("rightBack", "Cafu");
-            teamData.put("midfielder1", "Casemiro");
-            teamData.put("midfielder2", "Dunga");
-            teamData.put("midfielder3", "Messi");
-            teamData.put("leftWing", "Neymar");
-            teamData.put("rightWing", "Cristiano Ronaldo");
-            teamData.put("striker", "Ronaldo");
+        // Teams saved to the user's account survive logout; list them and load one on request
+        String userId = (String) session.getAttribute("user_id");
+        model.addAttribute("savedTeams", userId != null ? teamRosterService.findTeamNames(userId) : List.of());
+
+        TeamRoster roster = null;
+        if (userId != null && name != null && !name.isEmpty()) {
+            roster = teamRosterService.find(userId, name);
+            if (roster != null) {
+                rosterStore.save(session, roster);
+            }
         }
 
+        // Retrieve the saved team if exists
+        if (roster == null) {
+            roster = rosterStore.load(session);
+        }
+
+        // Pre-populate with default values if no team was saved
+        if (roster == null) {
+            roster = TeamRoster.defaults();
+        }
+        Map<String, String> teamData = roster.toMap();
+
         model.addAttribute("teamData", teamData);
 
         return "soccer/team";
@@ -86,7 +133,7 @@ public class SoccerController {
             HttpSession session,
             RedirectAttributes redirectAttributes) {
 
-        // Save team data to session
+        // Save team data for this session
         Map<String, String> teamData = new HashMap<>();
         teamData.put("teamName", teamName);
         teamData.put("goalkeeper", goalkeeper);
@@ -101,7 +148,19 @@ public class SoccerController {
         teamData.put("rightWing", rightWing);
         teamData.put("striker", striker);
 
-        session.setAttribute("team_data", teamData);
+        TeamRoster roster = TeamRoster.of(teamData);
+        String invalid = roster.validationError();
+        if (invalid != null) {
+            // Checked up front: a roster the database rejects would otherwise fail its write-behind batch
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, invalid);
+        }
+        rosterStore.save(session, roster);
+
+        // Keep a copy under the user's account; buffered, so this does not wait for the database
+        String userId = (String) session.getAttribute("user_id");
+        if (userId != null) {
+            teamRosterService.save(userId, roster);
+        }
 
         redirectAttributes.addFlashAttribute("successMessage",
             "Team '" + teamName + "' saved successfully!");
@@ -119,10 +178,9 @@ public class SoccerController {
         model.addAttribute("isAuthenticated", isAuthenticated);
         model.addAttribute("displayName", displayName);
 
-        // Get team data from session
-        @SuppressWarnings("unchecked")
-        Map<String, String> teamData = (Map<String, String>) session.getAttribute("team_data");
-        model.addAttribute("teamData", teamData);
+        // Get the saved team
+        TeamRoster roster = rosterStore.load(session);
+        model.addAttribute("teamData", roster != null ? roster.toMap() : null);
         return "soccer/formations";
     }
 
@@ -130,6 +188,7 @@ public class SoccerController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createAutofill(
             @RequestBody Map<String, String> request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             HttpSession session) {
 
         Map<String, Object> result = new HashMap<>();
@@ -148,89 +207,45 @@ public class SoccerController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
         }
 
-        // Get team data from session
-        @SuppressWarnings("unchecked")
-        Map<String, String> teamData = (Map<String, String>) session.getAttribute("team_data");
-        if (teamData == null) {
+        // Get the saved team
+        TeamRoster roster = rosterStore.load(session);
+        if (roster == null) {
             result.put("error", "No team data found");
             result.put("message", "Please save team data first");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
         }
 
-        try {
-            // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
-
-            // Step 1: Get brand template dataset using raw JSON to avoid deserialization issues
-            String rawDatasetResponse = apiClient.getRestClient()
-                .get()
-                .uri(baseUrl + "/v1/brand-templates/" + brandTemplateId + "/dataset")
-                .header("Authorization", "Bearer " + accessToken)
-                .retrieve()
-                .body(String.class);
-
-            // Parse the raw JSON to get dataset field names
-            com.fasterxml.jackson.databind.ObjectMapper objectMapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            @SuppressWarnings("unchecked")
-            Map<String, Object> datasetResponseMap = objectMapper.readValue(rawDatasetResponse, Map.class);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> dataset = (Map<String, Object>) datasetResponseMap.get("dataset");
-
-            // Step 2: Map team data to dataset fields
-            // Create an uppercase lookup map for case-insensitive matching
-            Map<String, String> teamDataUppercase = new HashMap<>();
-            for (Map.Entry<String, String> entry : teamData.entrySet()) {
-                teamDataUppercase.put(entry.getKey().toUpperCase(), entry.getValue());
-            }
-
-            Map<String, Object> dataMap = new HashMap<>();
-
-            if (dataset != null) {
-                for (Map.Entry<String, Object> entry : dataset.entrySet()) {
-                    String fieldName = entry.getKey();
+        // A repeat of the same template and roster returns the original job instead of rendering again
+        String userId = (String) session.getAttribute("user_id");
+        String ownerId = userId != null ? userId : session.getId();
+        String fingerprint = IdempotencyService.fingerprint(brandTemplateId, roster.toBytes());
 
-                    // Try to find matching team data (case-insensitive)
-                    String teamValue = teamDataUppercase.get(fieldName.toUpperCase());
-                    if (teamValue != null) {
-                        // Create a raw map for the dataset value
-                        Map<String, Object> datasetValue = new HashMap<>();
-                        datasetValue.put("type", "text");
-                        datasetValue.put("text", teamValue);
-                        dataMap.put(fieldName, datasetValue);
-                    }
-                }
-            }
-
-            // Step 3: Create autofill job using raw JSON
-            Map<String, Object> autofillRequestBody = new HashMap<>();
-            autofillRequestBody.put("brand_template_id", brandTemplateId);
-            autofillRequestBody.put("data", dataMap);
-
-            // Make the autofill API call directly with raw JSON
-            String autofillResponseRaw = apiClient.getRestClient()
-                .post()
-                .uri(baseUrl + "/v1/autofills")
-                .header("Authorization", "Bearer " + accessToken)
-                .header("Content-Type", "application/json")
-                .body(objectMapper.writeValueAsString(autofillRequestBody))
-                .retrieve()
-                .body(String.class);
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> autofillResponse = objectMapper.readValue(autofillResponseRaw, Map.class);
+        try {
+            IdempotencyService.Outcome<Object> job = idempotency.execute("autofill", ownerId, idempotencyKey,
+                fingerprint, renderWindow, () -> startAutofillJob(accessToken, userId, brandTemplateId, roster),
+                started -> started instanceof Map<?, ?> startedJob && startedJob.get("id") != null
+                    ? startedJob.get("id").toString() : null);
 
             result.put("success", true);
-            result.put("job", autofillResponse.get("job"));
+            result.put("job", job.value());
+            result.put("replayed", job.replayed());
             return ResponseEntity.ok(result);
 
+        } catch (IdempotencyConflictException e) {
+            result.put("error", "Idempotency key reused");
+            result.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(result);
         } catch (RestClientResponseException e) {
             result.put("error", "API Error");
             result.put("message", e.getResponseBodyAsString());
             result.put("statusCode", e.getStatusCode().value());
             return ResponseEntity.status(e.getStatusCode()).body(result);
         } catch (Exception e) {
+            if (DeadlineExceededException.isTimeout(e)) {
+                result.put("error", "Upstream timeout");
+                result.put("message", "Canva did not respond within the request deadline");
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(result);
+            }
             result.put("error", "Unexpected error");
             result.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
@@ -255,22 +270,29 @@ public class SoccerController {
 
         try {
             // Configure API client
-            ApiClient apiClient = new ApiClient();
-            apiClient.setBasePath(baseUrl);
-            apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
 
             // Get the autofill job status using raw JSON
-            String rawJobResponse = apiClient.getRestClient()
-                .get()
-                .uri(baseUrl + "/v1/autofills/" + jobId)
-                .header("Authorization", "Bearer " + accessToken)
-                .retrieve()
-                .body(String.class);
-
-            // Parse the raw JSON
-            com.fasterxml.jackson.databind.ObjectMapper objectMapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            @SuppressWarnings("unchecked")
-            Map<String, Object> jobResponse = objectMapper.readValue(rawJobResponse, Map.class);
+            Map<String, Object> jobResponse;
+            CanvaJfrEvents.AutofillStage stage = CanvaJfrEvents.AutofillStage.begin("status", null);
+            try {
+                String rawJobResponse = apiClient.getRestClient()
+                    .get()
+                    .uri(baseUrl + "/v1/autofills/" + jobId)
+                    .header("Authorization", "Bearer " + accessToken)
+                    .retrieve()
+                    .body(String.class);
+
+                // Parse the raw JSON
+                jobResponse = canvaJson.readMap(rawJobResponse, "autofill-job");
+            } finally {
+                stage.finish();
+            }
+
+            // A failed render must not be replayed to the next identical submission
+            if (jobResponse.get("job") instanceof Map<?, ?> job && "failed".equals(job.get("status"))) {
+                idempotency.forget("autofill", jobId);
+            }
 
             result.put("success", true);
             result.put("job", jobResponse.get("job"));
@@ -282,9 +304,152 @@ public class SoccerController {
             result.put("statusCode", e.getStatusCode().value());
             return ResponseEntity.status(e.getStatusCode()).body(result);
         } catch (Exception e) {
+            if (DeadlineExceededException.isTimeout(e)) {
+                result.put("error", "Upstream timeout");
+                result.put("message", "Canva did not respond within the request deadline");
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(result);
+            }
             result.put("error", "Unexpected error");
             result.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
         }
     }
+
+    /**
+     * POST /soccer/bulk-autofill
+     * Autofill one brand template for several of the user's saved teams, loading the rosters in
+     * one batch read. Body: {"brandTemplateId": "...", "teamNames": ["...", ...]}
+     */
+    @PostMapping("/bulk-autofill")
+    @ResponseBody
+    public Mono<ResponseEntity<Map<String, Object>>> bulkAutofill(
+            @RequestBody Map<String, Object> request,
+            HttpSession session) {
+
+        Map<String, Object> result = new HashMap<>();
+
+        String accessToken = (String) session.getAttribute("access_token");
+        String userId = (String) session.getAttribute("user_id");
+        if (accessToken == null || accessToken.isEmpty() || userId == null) {
+            result.put("error", "Not authenticated");
+            result.put("message", "Please connect to Canva first");
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result));
+        }
+
+        String brandTemplateId = (String) request.get("brandTemplateId");
+        if (brandTemplateId == null || brandTemplateId.isEmpty()) {
+            result.put("error", "Missing brand template ID");
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result));
+        }
+
+        List<String> teamNames = new ArrayList<>();
+        if (request.get("teamNames") instanceof List<?> names) {
+            for (Object teamName : names) {
+                teamNames.add(String.valueOf(teamName));
+            }
+        }
+        Map<String, TeamRoster> rosters = teamRosterService.findAll(userId, teamNames);
+        if (rosters.isEmpty()) {
+            result.put("error", "No team data found");
+            result.put("message", "None of the requested teams have been saved");
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result));
+        }
+
+        List<String> missing = new ArrayList<>(teamNames);
+        missing.removeAll(rosters.keySet());
+
+        return reactiveCanvaService.getBrandTemplateDataset(accessToken, brandTemplateId)
+                .flatMap(response -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> dataset = (Map<String, Object>) response.get("dataset");
+                    List<Map<String, Object>> datasets = new ArrayList<>(rosters.size());
+                    for (TeamRoster roster : rosters.values()) {
+                        datasets.add(roster.toAutofillData(dataset));
+                    }
+                    return reactiveCanvaService.bulkAutofill(accessToken, brandTemplateId, datasets).collectList();
+                })
+                .map(jobs -> {
+                    result.put("success", true);
+                    result.put("jobs", jobs);
+                    result.put("missingTeams", missing);
+                    return ResponseEntity.ok(result);
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException apiError) {
+                        result.put("error", "API Error");
+                        result.put("message", apiError.getResponseBodyAsString());
+                        result.put("statusCode", apiError.getStatusCode().value());
+                        return Mono.just(ResponseEntity.status(apiError.getStatusCode()).body(result));
+                    }
+                    if (e instanceof TimeoutException || DeadlineExceededException.isTimeout(e)) {
+                        result.put("error", "Upstream timeout");
+                        result.put("message", "Canva did not respond within the request deadline");
+                        return Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(result));
+                    }
+                    result.put("error", "Unexpected error");
+                    result.put("message", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result));
+                });
+    }
+
+    /**
+     * Fetch the template's dataset, fill it from the roster and start the autofill job;
+     * returns the {@code job} object of the response
+     */
+    private Object startAutofillJob(String accessToken, String userId, String brandTemplateId, TeamRoster roster) {
+        try {
+            // Configure API client
+            ApiClient apiClient = canvaClients.apiClient(accessToken);
+
+            // Step 1: Get brand template dataset using raw JSON to avoid deserialization issues
+            Map<String, Object> dataset;
+            CanvaJfrEvents.AutofillStage stage = CanvaJfrEvents.AutofillStage.begin("dataset", brandTemplateId);
+            try {
+                String rawDatasetResponse = catalog.getBrandTemplateDataset(userId, accessToken, brandTemplateId);
+
+                // Parse the raw JSON to get dataset field names
+                Map<String, Object> datasetResponseMap = canvaJson.readMap(rawDatasetResponse, "dataset");
+                @SuppressWarnings("unchecked")
+                Map<String, Object> datasetFields = (Map<String, Object>) datasetResponseMap.get("dataset");
+                dataset = datasetFields;
+            } finally {
+                stage.finish();
+            }
+
+            // Step 2: Map team data to dataset fields
+            Map<String, Object> dataMap;
+            stage = CanvaJfrEvents.AutofillStage.begin("map", brandTemplateId);
+            try {
+                dataMap = roster.toAutofillData(dataset);
+            } finally {
+                stage.finish();
+            }
+
+            // Step 3: Create autofill job using raw JSON
+            Map<String, Object> autofillResponse;
+            stage = CanvaJfrEvents.AutofillStage.begin("submit", brandTemplateId);
+            try {
+                Map<String, Object> autofillRequestBody = new HashMap<>();
+                autofillRequestBody.put("brand_template_id", brandTemplateId);
+                autofillRequestBody.put("data", dataMap);
+
+                // Make the autofill API call directly with raw JSON
+                String autofillResponseRaw = apiClient.getRestClient()
+                    .post()
+                    .uri(baseUrl + "/v1/autofills")
+                    .header("Authorization", "Bearer " + accessToken)
+                    .header("Content-Type", "application/json")
+                    .body(canvaJson.write(autofillRequestBody, "autofill-request"))
+                    .retrieve()
+                    .body(String.class);
+
+                autofillResponse = canvaJson.readMap(autofillResponseRaw, "autofill-job");
+            } finally {
+                stage.finish();
+            }
+            return autofillResponse.get("job");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticated encryption (AES-GCM) for values the application hands to the browser and
+ * must get back unmodified, such as stateless OAuth state.
+ * <p>
+ * Keys are configured as {@code canva.crypto.keys=id:base64Key,...}. The first key seals new
+ * tokens; every listed key can open them, so keys are rotated by prepending a new one and
+ * dropping the oldest once its tokens can no longer be valid. Each token carries its key id.
+ * The purpose string is bound as associated data, so a token sealed for one use is rejected
+ * by every other.
+ */
+@Component
+public class AeadCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(AeadCodec.class);
+
+    private static final byte VERSION = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+    private final String activeKeyId;
+
+    public AeadCodec(@Value("${canva.crypto.keys:}") List<String> configuredKeys) {
+        for (String entry : configuredKeys) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("canva.crypto.keys entries must be id:base64Key");
+            }
+            String id = entry.substring(0, separator).trim();
+            byte[] key = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            keys.put(id, new SecretKeySpec(key, "AES"));
+        }
+
+        if (keys.isEmpty()) {
+            // Fine for a single node; tokens will not survive a restart or work across nodes
+            logger.warn("No canva.crypto.keys configured, using a random per-process key");
+            byte[] key = new byte[32];
+            secureRandom.nextBytes(key);
+            keys.put("local", new SecretKeySpec(key, "AES"));
+        }
+        this.activeKeyId = keys.keySet().iterator().next();
+    }
+
+    /**
+     * Encrypt and authenticate a value; returns a URL-safe token
+     */
+    public String seal(byte[] plaintext, String purpose) {
+        byte[] keyId = activeKeyId.getBytes(StandardCharsets.US_ASCII);
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, keys.get(activeKeyId), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(purpose.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+
+            ByteBuffer token = ByteBuffer.allocate(2 + keyId.length + IV_LENGTH + ciphertext.length);
+            token.put(VERSION).put((byte) keyId.length).put(keyId).put(iv).put(ciphertext);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to seal token", e);
+        }
+    }
+
+    /**
+     * Decrypt a token produced by {@link #seal}; returns null if it is malformed, was sealed
+     * with an unknown key or for another purpose, or has been tampered with
+     */
+    public byte[] open(String token, String purpose) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            if (buffer.get() != VERSION) {
+                return null;
+            }
+            byte[] keyId = new byte[buffer.get() & 0xFF];
+            buffer.get(keyId);
+            SecretKeySpec key = keys.get(new String(keyId, StandardCharsets.US_ASCII));
+            if (key == null) {
+                return null;
+            }
+            byte[] iv = new byte[IV_LENGTH];
+            buffer.get(iv);
+            byte[] ciphertext = new byte[buffer.remaining()];
+            buffer.get(ciphertext);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(purpose.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(ciphertext);
+        } catch (IllegalArgumentException | BufferUnderflowException | GeneralSecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.demo.service;
+
+import com.example.demo.canva.api.BrandTemplateApi;
+import com.example.demo.canva.model.ListBrandTemplatesResponse;
+import com.example.demo.canva.model.OwnershipType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Reads of a user's brand templates, template datasets and folder listings, cached per user
+ * for a short TTL. These back the formations page and are what {@link PostLoginWarmer}
+ * prefetches, so both must go through here for the warm entries to be found.
+ * <p>
+ * Entries are keyed by Canva user id and upstream resource; callers without a user id always
+ * go upstream. Concurrent misses for the same entry share one upstream call. Invalidating
+ * detaches loads already in flight, so their now stale result is not cached.
+ */
+@Service
+public class CanvaCatalogService {
+
+    private static final String FOLDERS_PREFIX = "/v1/folders/";
+
+    private final CanvaClientFactory canvaClients;
+    private final CanvaRequestHedger hedger;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    private final Counter hits;
+    private final Counter joins;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    @Value("${canva.api.base-url:https://api.canva.com/rest}")
+    private String baseUrl;
+
+    public CanvaCatalogService(CanvaClientFactory canvaClients, CanvaRequestHedger hedger,
+                               @Value("${canva.catalog-cache.ttl:2m}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.canvaClients = canvaClients;
+        this.hedger = hedger;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = requests(meterRegistry, "hit");
+        this.joins = requests(meterRegistry, "joined");
+        this.misses = requests(meterRegistry, "miss");
+        this.bypasses = requests(meterRegistry, "bypass");
+        Gauge.builder("canva.catalog.cache.size", entries, Map::size)
+                .description("Cached brand template and folder responses")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("canva.catalog.cache.requests")
+                .description("Brand template and folder reads by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * First page of the user's brand templates
+     */
+    public ListBrandTemplatesResponse listBrandTemplates(String userId, String accessToken,
+                                                         String query, OwnershipType ownership) {
+        String resource = "/v1/brand-templates?query=" + (query != null ? query : "") + "&ownership=" + ownership;
+        return get(userId, resource, () -> new BrandTemplateApi(canvaClients.apiClient(accessToken))
+                .listBrandTemplates(query, null, ownership, null, null));
+    }
+
+    /**
+     * Raw JSON of a brand template's dataset
+     */
+    public String getBrandTemplateDataset(String userId, String accessToken, String brandTemplateId) {
+        String resource = "/v1/brand-templates/" + brandTemplateId + "/dataset";
+        return get(userId, resource, () -> hedger.execute("getBrandTemplateDataset", () -> rawGet(accessToken, resource)));
+    }
+
+    /**
+     * Same as {@link #getBrandTemplateDataset} but never hedged, for background warm-up that
+     * must stay on its own executor
+     */
+    String prefetchBrandTemplateDataset(String userId, String accessToken, String brandTemplateId) {
+        String resource = "/v1/brand-templates/" + brandTemplateId + "/dataset";
+        return get(userId, resource, () -> rawGet(accessToken, resource));
+    }
+
+    /**
+     * Raw JSON of the first page of a folder's items, optionally filtered by item type
+     */
+    public String listFolderItems(String userId, String accessToken, String folderId, String itemTypes) {
+        String resource = FOLDERS_PREFIX + folderId + "/items";
+        if (itemTypes != null && !itemTypes.isEmpty()) {
+            resource += "?item_types=" + itemTypes;
+        }
+        String uri = resource;
+        return get(userId, resource, () -> rawGet(accessToken, uri));
+    }
+
+    /**
+     * Drop the user's cached folder listings, after they moved or created items
+     */
+    public void invalidateFolders(String userId) {
+        if (userId != null) {
+            invalidate(key -> key.userId.equals(userId) && key.resource.startsWith(FOLDERS_PREFIX));
+        }
+    }
+
+    /**
+     * Drop everything cached for the user
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            invalidate(key -> key.userId.equals(userId));
+        }
+    }
+
+    private void invalidate(Predicate<Key> matching) {
+        // Detach loads first: one that completes after this can no longer cache its result,
+        // and one that already did is removed with the entries below
+        loading.keySet().removeIf(matching);
+        entries.keySet().removeIf(matching);
+    }
+
+    @Scheduled(fixedDelayString = "${canva.catalog-cache.sweep-interval:1m}")
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+    }
+
+    private String rawGet(String accessToken, String resource) {
+        return canvaClients.apiClient(accessToken).getRestClient()
+                .get()
+                .uri(baseUrl + resource)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve()
+                .body(String.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String userId, String resource, Supplier<T> loader) {
+        CanvaJfrEvents.CacheLookup event = CanvaJfrEvents.CacheLookup.begin("catalog", resource);
+        if (userId == null) {
+            bypasses.increment();
+            try {
+                return loader.get();
+            } finally {
+                event.end("bypass");
+            }
+        }
+
+        Key key = new Key(userId, resource);
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            hits.increment();
+            event.end("hit");
+            return (T) entry.value;
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            joins.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            } finally {
+                event.end("joined");
+            }
+        }
+
+        misses.increment();
+        try {
+            T value = loader.get();
+            if (value != null) {
+                // Only while still registered as the load for this key, i.e. not invalidated
+                loading.computeIfPresent(key, (k, current) -> {
+                    if (current == load) {
+                        entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+                    }
+                    return current;
+                });
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+            event.end("miss");
+        }
+    }
+
+    private record Key(String userId, String resource) {
+    }
+
+    private record Entry(Object value, long expiresAtNanos) {
+    }
+}
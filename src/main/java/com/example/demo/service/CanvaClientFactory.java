@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+import com.example.demo.canva.client.ApiClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Creates per-user Canva API clients on top of the shared, deadline-aware RestClients,
+ * so every outbound call made with a session token goes through the same transport.
+ */
+@Service
+public class CanvaClientFactory {
+
+    private final RestClient canvaRestClient;
+    private final RestClient canvaPrivateRestClient;
+
+    @Value("${canva.api.base-url:https://api.canva.com/rest}")
+    private String baseUrl;
+
+    public CanvaClientFactory(@Qualifier("canvaRestClient") RestClient canvaRestClient,
+                              @Qualifier("canvaPrivateRestClient") RestClient canvaPrivateRestClient) {
+        this.canvaRestClient = canvaRestClient;
+        this.canvaPrivateRestClient = canvaPrivateRestClient;
+    }
+
+    /**
+     * Public API client authenticated with the given access token
+     */
+    public ApiClient apiClient(String accessToken) {
+        ApiClient apiClient = new ApiClient(canvaRestClient);
+        apiClient.setBasePath(baseUrl);
+        apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+        return apiClient;
+    }
+
+    /**
+     * Private API client authenticated with the given access token
+     */
+    public com.example.demo.canva.privateclient.ApiClient privateApiClient(String accessToken) {
+        com.example.demo.canva.privateclient.ApiClient apiClient = new com.example.demo.canva.privateclient.ApiClient(canvaPrivateRestClient);
+        apiClient.setBasePath(baseUrl);
+        apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+        return apiClient;
+    }
+
+    /**
+     * Shared RestClient for raw JSON calls; callers add the Authorization header themselves
+     */
+    public RestClient restClient() {
+        return canvaRestClient;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JDK Flight Recorder events of the Canva client layer. They carry the operation,
+ * cache or pipeline stage that JFR's own allocation, lock and CPU samples lack: open a
+ * recording in JDK Mission Control and the samples on the same thread within an event's time
+ * span belong to that call or stage.
+ * <p>
+ * Events cost next to nothing while no recording is running; see {@code /api/admin/jfr}.
+ */
+public final class CanvaJfrEvents {
+
+    private CanvaJfrEvents() {
+    }
+
+    @Name("com.example.demo.CanvaCall")
+    @Label("Canva Call")
+    @Category({"Canva", "Client"})
+    @Description("Outbound call to the Canva API")
+    @StackTrace(false)
+    public static final class Call extends Event {
+
+        @Label("Client")
+        @Description("connect or private")
+        public String client;
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("Method")
+        public String method;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Attempt")
+        @Description("initial, retry or hedge")
+        public String attempt;
+
+        @Label("Status")
+        @Description("HTTP status, or 0 when no response arrived")
+        public int status;
+
+        @Label("Outcome")
+        public String outcome;
+
+        @Label("Bytes Out")
+        @DataAmount
+        public long bytesOut;
+
+        @Label("Bytes In")
+        @Description("Response body bytes read, -1 if unknown")
+        @DataAmount
+        public long bytesIn;
+    }
+
+    @Name("com.example.demo.CanvaCacheLookup")
+    @Label("Canva Cache Lookup")
+    @Category({"Canva", "Cache"})
+    @Description("Lookup in a per-user Canva cache; a miss includes the upstream load")
+    @StackTrace(false)
+    public static final class CacheLookup extends Event {
+
+        @Label("Cache")
+        public String cache;
+
+        @Label("Entry")
+        @Description("What was looked up, e.g. PROFILE or the upstream resource")
+        public String entry;
+
+        @Label("Result")
+        @Description("hit, joined, miss or bypass")
+        public String result;
+
+        public static CacheLookup begin(String cache, String entry) {
+            CacheLookup event = new CacheLookup();
+            event.cache = cache;
+            event.entry = entry;
+            event.begin();
+            return event;
+        }
+
+        public void end(String result) {
+            if (shouldCommit()) {
+                this.result = result;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.demo.AutofillStage")
+    @Label("Autofill Stage")
+    @Category({"Canva", "Autofill"})
+    @Description("One stage of starting an autofill job")
+    @StackTrace(false)
+    public static final class AutofillStage extends Event {
+
+        @Label("Stage")
+        @Description("dataset, map, submit or status")
+        public String stage;
+
+        @Label("Brand Template")
+        public String brandTemplateId;
+
+        public static AutofillStage begin(String stage, String brandTemplateId) {
+            AutofillStage event = new AutofillStage();
+            event.stage = stage;
+            event.brandTemplateId = brandTemplateId;
+            event.begin();
+            return event;
+        }
+
+        /**
+         * End the stage and commit it if the recording wants it; {@link Event#end()} is final
+         */
+        public void finish() {
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+}
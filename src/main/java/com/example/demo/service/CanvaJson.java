@@ -0,0 +1,50 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * JSON parsing and writing of raw Canva payloads, observed so each step shows up as its own
+ * span (and in the {@code canva.json} timer) next to the upstream calls around it.
+ */
+@Component
+public class CanvaJson {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObservationRegistry observationRegistry;
+
+    public CanvaJson(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Parse a JSON object
+     *
+     * @param payload short name of what is parsed, e.g. {@code dataset}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readMap(String json, String payload) throws JsonProcessingException {
+        return observation("read", payload).observeChecked(() -> objectMapper.readValue(json, Map.class));
+    }
+
+    /**
+     * Write a value as JSON
+     *
+     * @param payload short name of what is written, e.g. {@code autofill-request}
+     */
+    public String write(Object value, String payload) throws JsonProcessingException {
+        return observation("write", payload).observeChecked(() -> objectMapper.writeValueAsString(value));
+    }
+
+    private Observation observation(String direction, String payload) {
+        return Observation.createNotStarted("canva.json", observationRegistry)
+                .contextualName("json " + direction + " " + payload)
+                .lowCardinalityKeyValue("direction", direction)
+                .lowCardinalityKeyValue("payload", payload);
+    }
+}
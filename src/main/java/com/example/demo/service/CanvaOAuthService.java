@@ -1,10 +1,14 @@
 package com.example.demo.service;
 
 import com.example.demo.config.CanvaOAuthProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -12,8 +16,6 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.Map;
 
@@ -23,42 +25,41 @@ public class CanvaOAuthService {
     private final CanvaOAuthProperties oauthProperties;
     private final RestClient restClient;
 
-    public CanvaOAuthService(CanvaOAuthProperties oauthProperties) {
+    @Value("${canva.api.base-url:https://api.canva.com/rest}")
+    private String baseUrl;
+
+    public CanvaOAuthService(CanvaOAuthProperties oauthProperties,
+                             @Qualifier("canvaRequestFactory") ClientHttpRequestFactory canvaRequestFactory,
+                             @Qualifier("canvaClientObservationInterceptor") ClientHttpRequestInterceptor observationInterceptor,
+                             @Qualifier("canvaFlightRecorderInterceptor") ClientHttpRequestInterceptor flightRecorderInterceptor) {
         this.oauthProperties = oauthProperties;
-        this.restClient = RestClient.builder().build();
+        // Token and profile calls share the deadline-aware transport, metrics and flight recorder with the API clients
+        this.restClient = RestClient.builder()
+                .requestFactory(canvaRequestFactory)
+                .requestInterceptor(observationInterceptor)
+                .requestInterceptor(flightRecorderInterceptor)
+                .build();
     }
 
     /**
      * Generate a random code verifier for PKCE
      */
     public String generateCodeVerifier() {
-        SecureRandom secureRandom = new SecureRandom();
-        byte[] codeVerifier = new byte[32];
-        secureRandom.nextBytes(codeVerifier);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(codeVerifier);
+        return PkceMaterialPool.randomToken();
     }
 
     /**
      * Generate code challenge from code verifier using SHA-256
      */
     public String generateCodeChallenge(String codeVerifier) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(codeVerifier.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate code challenge", e);
-        }
+        return PkceMaterialPool.challenge(codeVerifier);
     }
 
     /**
      * Generate a random state parameter for CSRF protection
      */
     public String generateState() {
-        SecureRandom secureRandom = new SecureRandom();
-        byte[] state = new byte[32];
-        secureRandom.nextBytes(state);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(state);
+        return PkceMaterialPool.randomToken();
     }
 
     /**
@@ -142,6 +143,22 @@ public class CanvaOAuthService {
         return response.getBody();
     }
 
+    /**
+     * Get the user and team ids of the token's owner from Canva API
+     */
+    public Map<String, Object> getCurrentUser(String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + accessToken);
+
+        ResponseEntity<Map> response = restClient.get()
+                .uri(baseUrl + "/v1/users/me")
+                .headers(h -> h.addAll(headers))
+                .retrieve()
+                .toEntity(Map.class);
+
+        return response.getBody();
+    }
+
     /**
      * Get user profile information from Canva API
      */
@@ -150,7 +167,7 @@ public class CanvaOAuthService {
         headers.set("Authorization", "Bearer " + accessToken);
 
         ResponseEntity<Map> response = restClient.get()
-                .uri("https://api.canva.com/rest/v1/users/me/profile")
+                .uri(baseUrl + "/v1/users/me/profile")
                 .headers(h -> h.addAll(headers))
                 .retrieve()
                 .toEntity(Map.class);
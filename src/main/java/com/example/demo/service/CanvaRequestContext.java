@@ -0,0 +1,178 @@
+package com.example.demo.service;
+
+import jakarta.servlet.http.HttpSession;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Per-request state that outbound Canva calls need to see, such as the request deadline, the
+ * session whose tokens they use and the user they are made for.
+ * Bound to the handling thread at the controller boundary and copied onto fan-out threads
+ * by the executor's task decorator.
+ */
+public final class CanvaRequestContext {
+
+    private static final ThreadLocal<CanvaRequestContext> CURRENT = new ThreadLocal<>();
+
+    /** Attempt label of calls made without a retry or hedge in progress */
+    public static final String INITIAL_ATTEMPT = "initial";
+
+    private final Deadline deadline;
+    private final HttpSession session;
+    private final String attempt;
+    private final String userId;
+
+    public CanvaRequestContext(Deadline deadline) {
+        this(deadline, null);
+    }
+
+    public CanvaRequestContext(Deadline deadline, HttpSession session) {
+        this(deadline, session, INITIAL_ATTEMPT, null);
+    }
+
+    private CanvaRequestContext(Deadline deadline, HttpSession session, String attempt, String userId) {
+        this.deadline = deadline;
+        this.session = session;
+        this.attempt = attempt;
+        this.userId = userId;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public HttpSession getSession() {
+        return session;
+    }
+
+    /**
+     * Which attempt at a Canva call is running: {@code initial}, {@code retry} or {@code hedge}
+     */
+    public String getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Canva user the calls are made for: the one set with {@link #withUserId}, otherwise the
+     * session's, or null
+     */
+    public String getUserId() {
+        return userId != null ? userId : IdentityCache.userId(session);
+    }
+
+    /**
+     * Copy of this context whose deadline is the earlier of the current one and the given one
+     */
+    public CanvaRequestContext withDeadline(Deadline other) {
+        return new CanvaRequestContext(other == null ? deadline : other.min(deadline), session, attempt, userId);
+    }
+
+    /**
+     * Copy of this context for calls made as the given attempt
+     */
+    public CanvaRequestContext withAttempt(String attempt) {
+        return new CanvaRequestContext(deadline, session, attempt, userId);
+    }
+
+    /**
+     * Copy of this context for calls made on behalf of the given user, for work that has no
+     * session such as background warm-up
+     */
+    public CanvaRequestContext withUserId(String userId) {
+        return new CanvaRequestContext(deadline, session, attempt, userId);
+    }
+
+    public static CanvaRequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Deadline of the request being handled on this thread, or null outside a request
+     */
+    public static Deadline currentDeadline() {
+        CanvaRequestContext context = CURRENT.get();
+        return context != null ? context.deadline : null;
+    }
+
+    /**
+     * HTTP session of the request being handled on this thread, or null
+     */
+    public static HttpSession currentSession() {
+        CanvaRequestContext context = CURRENT.get();
+        return context != null ? context.session : null;
+    }
+
+    /**
+     * Canva user the call being made on this thread is for, or null
+     */
+    public static String currentUserId() {
+        CanvaRequestContext context = CURRENT.get();
+        return context != null ? context.getUserId() : null;
+    }
+
+    /**
+     * Attempt label of the Canva call being made on this thread
+     */
+    public static String currentAttempt() {
+        CanvaRequestContext context = CURRENT.get();
+        return context != null ? context.attempt : INITIAL_ATTEMPT;
+    }
+
+    public static void set(CanvaRequestContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Run the task with the given context bound, restoring the previous one afterwards
+     */
+    public static <T> T callWith(CanvaRequestContext context, Callable<T> task) throws Exception {
+        CanvaRequestContext previous = CURRENT.get();
+        set(context);
+        try {
+            return task.call();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Run the task with the given context bound, restoring the previous one afterwards
+     */
+    public static void runWith(CanvaRequestContext context, Runnable task) {
+        CanvaRequestContext previous = CURRENT.get();
+        set(context);
+        try {
+            task.run();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Capture the caller's context so the task sees it when run on another thread.
+     * Used as the task decorator of the fan-out executor.
+     */
+    public static Runnable wrap(Runnable task) {
+        CanvaRequestContext captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            CanvaRequestContext previous = CURRENT.get();
+            set(captured);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent Canva GETs: if the first attempt has not answered by the observed p95
+ * latency of that operation, a second attempt is sent and whichever returns first wins.
+ * A token bucket refilled by a fraction of every request caps the extra upstream load.
+ * Attempts run on their own executor, at most {@code canva.hedging.concurrency-limit} at a
+ * time, so hedging never takes slots from the fan-out executor it is meant to speed up.
+ */
+@Service
+public class CanvaRequestHedger {
+
+    /** Samples needed before the observed p95 replaces the configured initial delay */
+    private static final int MIN_SAMPLES = 32;
+    private static final int WINDOW_SIZE = 512;
+    private static final long TOKEN = 1000;
+
+    private final AsyncTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    /** Hedge budget in thousandths of a hedge */
+    private final AtomicLong budget = new AtomicLong();
+
+    @Value("${canva.hedging.enabled:false}")
+    private boolean enabled;
+
+    @Value("${canva.hedging.operations:getDesign,getBrandTemplateDataset}")
+    private List<String> operations;
+
+    @Value("${canva.hedging.budget-ratio:0.05}")
+    private double budgetRatio;
+
+    @Value("${canva.hedging.max-burst:10}")
+    private int maxBurst;
+
+    @Value("${canva.hedging.initial-delay:500ms}")
+    private Duration initialDelay;
+
+    @Value("${canva.hedging.min-delay:20ms}")
+    private Duration minDelay;
+
+    @Value("${canva.hedging.concurrency-limit:16}")
+    private int concurrencyLimit;
+
+    @Value("${canva.api.read-timeout:30s}")
+    private Duration readTimeout;
+
+    private Semaphore permits;
+
+    public CanvaRequestHedger(@Qualifier("canvaHedgeExecutor") AsyncTaskExecutor executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(concurrencyLimit);
+    }
+
+    /**
+     * Run an idempotent upstream call, hedging it if hedging is enabled for the operation.
+     * Exceptions from the call are rethrown unchanged, and only once every attempt has failed.
+     * Waits at most until the request deadline, then throws {@link DeadlineExceededException}.
+     */
+    public <T> T execute(String operation, Supplier<T> call) {
+        if (!enabled || !operations.contains(operation)) {
+            return call.get();
+        }
+
+        OperationStats operationStats = stats.computeIfAbsent(operation, OperationStats::new);
+        operationStats.requests.increment();
+        refillBudget();
+
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        if (deadline == null) {
+            deadline = Deadline.after(readTimeout);
+        }
+        long startTime = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = launch(() -> attempt(call, result, pending, operationStats, startTime, false));
+        if (primary == null) {
+            // Every hedging slot is taken; make the call the ordinary way
+            operationStats.saturated.increment();
+            return call.get();
+        }
+        Future<?> hedge = null;
+        int acquired = 1;
+
+        try {
+            try {
+                long hedgeDelay = Math.min(operationStats.hedgeDelayNanos(), deadline.remainingNanos());
+                return result.get(hedgeDelay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (deadline.isExpired()) {
+                    throw e;
+                }
+                if (!tryAcquireHedge()) {
+                    operationStats.budgetExhausted.increment();
+                } else {
+                    pending.incrementAndGet();
+                    hedge = launch(() -> attempt(call, result, pending, operationStats, startTime, true));
+                    if (hedge != null) {
+                        acquired++;
+                        operationStats.hedges.increment();
+                    } else {
+                        pending.decrementAndGet();
+                        operationStats.saturated.increment();
+                    }
+                }
+            }
+            return result.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded waiting for " + operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + operation, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // Whichever attempt lost is no longer needed
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            permits.release(acquired);
+        }
+    }
+
+    /**
+     * Submit an attempt if a hedging slot is free, or return null without submitting it
+     */
+    private Future<?> launch(Runnable attempt) {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        try {
+            return executor.submit(attempt);
+        } catch (TaskRejectedException e) {
+            permits.release();
+            return null;
+        }
+    }
+
+    private <T> void attempt(Supplier<T> call, CompletableFuture<T> result, AtomicInteger pending,
+                             OperationStats operationStats, long requestStartTime, boolean hedged) {
+        CanvaRequestContext previous = CanvaRequestContext.current();
+        if (hedged) {
+            // Lets the outbound call be told apart from the primary attempt
+            CanvaRequestContext.set((previous != null ? previous : new CanvaRequestContext(null)).withAttempt("hedge"));
+        }
+        Throwable failure = null;
+        try {
+            T value = call.get();
+            if (result.complete(value)) {
+                // Latency as the caller saw it, so a winning hedge does not drag the p95 down
+                operationStats.record(System.nanoTime() - requestStartTime);
+                if (hedged) {
+                    operationStats.wins.increment();
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            CanvaRequestContext.set(previous);
+            // Fail the request only once no other attempt can still succeed
+            if (pending.decrementAndGet() == 0 && failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void refillBudget() {
+        long refill = (long) (budgetRatio * TOKEN);
+        long cap = maxBurst * TOKEN;
+        budget.getAndUpdate(tokens -> Math.min(cap, tokens + refill));
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            long tokens = budget.get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+            if (budget.compareAndSet(tokens, tokens - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Recent latencies and hedge counters for one operation
+     */
+    private final class OperationStats {
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private long recorded;
+        private volatile long p95Nanos = -1;
+
+        private final Counter requests;
+        private final Counter hedges;
+        private final Counter wins;
+        private final Counter budgetExhausted;
+        private final Counter saturated;
+
+        OperationStats(String operation) {
+            this.requests = Counter.builder("canva.hedging.requests")
+                    .description("Hedge-eligible Canva requests")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.hedges = Counter.builder("canva.hedging.hedges")
+                    .description("Second attempts sent because the first was slower than p95")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.wins = Counter.builder("canva.hedging.wins")
+                    .description("Requests answered by the hedged attempt")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.budgetExhausted = Counter.builder("canva.hedging.budget.exhausted")
+                    .description("Hedges skipped because the hedge budget was used up")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.saturated = Counter.builder("canva.hedging.saturated")
+                    .description("Requests not hedged because every hedging slot was taken")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            Gauge.builder("canva.hedging.delay", this, stats -> stats.hedgeDelayNanos() / 1_000_000.0)
+                    .description("Current hedge delay (observed p95)")
+                    .tag("operation", operation)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+
+        synchronized void record(long latencyNanos) {
+            long count = recorded++;
+            samples[(int) (count % WINDOW_SIZE)] = latencyNanos;
+            // Recompute the percentile periodically rather than on every sample
+            if (count + 1 >= MIN_SAMPLES && (count + 1) % 32 == 0) {
+                long[] window = Arrays.copyOf(samples, (int) Math.min(count + 1, WINDOW_SIZE));
+                Arrays.sort(window);
+                p95Nanos = window[(int) Math.ceil(window.length * 0.95) - 1];
+            }
+        }
+
+        long hedgeDelayNanos() {
+            long p95 = p95Nanos;
+            if (p95 < 0) {
+                return initialDelay.toNanos();
+            }
+            return Math.max(minDelay.toNanos(), p95);
+        }
+    }
+}
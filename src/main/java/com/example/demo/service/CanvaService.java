@@ -14,31 +14,34 @@ public class CanvaService {
     private final DesignApi designApi;
     private final AssetApi assetApi;
     private final FolderApi folderApi;
+    private final IdentityCache identityCache;
 
-    public CanvaService(UserApi userApi, DesignApi designApi, AssetApi assetApi, FolderApi folderApi) {
+    public CanvaService(UserApi userApi, DesignApi designApi, AssetApi assetApi, FolderApi folderApi,
+                        IdentityCache identityCache) {
         this.userApi = userApi;
         this.designApi = designApi;
         this.assetApi = assetApi;
         this.folderApi = folderApi;
+        this.identityCache = identityCache;
     }
 
     /**
-     * Get the current user's profile
+     * Get the current user's profile (cached per user; a null user id skips the cache)
      */
-    public UserProfileResponse getUserProfile() {
+    public UserProfileResponse getUserProfile(String userId) {
         try {
-            return userApi.getUserProfile();
+            return identityCache.get(userId, IdentityCache.Kind.PROFILE, userApi::getUserProfile);
         } catch (RestClientResponseException e) {
             throw new RuntimeException("Failed to get user profile: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Get user capabilities
+     * Get user capabilities (cached per user; a null user id skips the cache)
      */
-    public GetUserCapabilitiesResponse getUserCapabilities() {
+    public GetUserCapabilitiesResponse getUserCapabilities(String userId) {
         try {
-            return userApi.getUserCapabilities();
+            return identityCache.get(userId, IdentityCache.Kind.CAPABILITIES, userApi::getUserCapabilities);
         } catch (RestClientResponseException e) {
             throw new RuntimeException("Failed to get user capabilities: " + e.getMessage(), e);
         }
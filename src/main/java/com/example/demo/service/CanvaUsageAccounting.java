@@ -0,0 +1,210 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes every upstream Canva call to the user (and team) it was made for, per endpoint
+ * family ({@code autofills}, {@code asset-uploads}, {@code designs}, ...): calls, bytes
+ * uploaded and downloaded, cumulative latency, 429s and other errors. Used to find the heavy
+ * users and clubs behind our rate limit and bandwidth, see {@code /api/admin/usage}.
+ * <p>
+ * Counters are {@link LongAdder}s, so concurrent calls of the same user never contend on a
+ * lock. Calls without a signed-in user (OAuth token exchange, post-login warm-up) are
+ * accounted to {@link #ANONYMOUS}; beyond {@code canva.usage.max-users} distinct users, new
+ * users are accounted to {@link #OVERFLOW}. Totals run since start-up or the last
+ * {@link #reset}.
+ */
+@Service
+public class CanvaUsageAccounting {
+
+    public static final String ANONYMOUS = "anonymous";
+    public static final String OVERFLOW = "other";
+
+    private final Map<String, UserUsage> users = new ConcurrentHashMap<>();
+    private final int maxUsers;
+    private volatile Instant since = Instant.now();
+
+    public CanvaUsageAccounting(@Value("${canva.usage.max-users:10000}") int maxUsers, MeterRegistry meterRegistry) {
+        this.maxUsers = maxUsers;
+        Gauge.builder("canva.usage.users", users, Map::size)
+                .description("Users with accounted upstream calls")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Account one finished call
+     *
+     * @param path          request path, used for the endpoint family
+     * @param bytesOut      request body size, or -1 if unknown
+     * @param bytesIn       response body size, or -1 if unknown
+     * @param status        HTTP status, or 0 when no response arrived
+     */
+    public void record(String userId, String teamId, String path, long latencyNanos, long bytesOut, long bytesIn,
+                       int status) {
+        UserUsage user = user(userId != null ? userId : ANONYMOUS);
+        if (teamId != null) {
+            user.teamId = teamId;
+        }
+        Usage usage = user.families.computeIfAbsent(family(path), family -> new Usage());
+        usage.calls.increment();
+        usage.latencyNanos.add(latencyNanos);
+        if (bytesOut > 0) {
+            usage.bytesOut.add(bytesOut);
+        }
+        if (bytesIn > 0) {
+            usage.bytesIn.add(bytesIn);
+        }
+        if (status == 429) {
+            usage.rateLimited.increment();
+        } else if (status == 0 || status >= 400) {
+            usage.errors.increment();
+        }
+    }
+
+    private UserUsage user(String userId) {
+        UserUsage user = users.get(userId);
+        if (user != null) {
+            return user;
+        }
+        if (users.size() >= maxUsers) {
+            return users.computeIfAbsent(OVERFLOW, id -> new UserUsage());
+        }
+        return users.computeIfAbsent(userId, id -> new UserUsage());
+    }
+
+    /**
+     * Endpoint family of a request path: the first segment after the API version, e.g.
+     * {@code autofills} for {@code /rest/v1/autofills/{jobId}}
+     */
+    static String family(String path) {
+        if (path == null) {
+            return "unknown";
+        }
+        int version = path.indexOf("/v1/");
+        int start = version >= 0 ? version + 4 : (path.startsWith("/") ? 1 : 0);
+        int end = path.indexOf('/', start);
+        String family = end >= 0 ? path.substring(start, end) : path.substring(start);
+        return family.isEmpty() ? "unknown" : family;
+    }
+
+    /**
+     * The {@code limit} users (or teams, with {@code byTeam}) with the highest {@code sort}
+     * value, optionally counting only one endpoint family
+     */
+    public Report top(Sort sort, int limit, String family, boolean byTeam) {
+        Map<String, Row> rows = new HashMap<>();
+        for (Map.Entry<String, UserUsage> user : users.entrySet()) {
+            String teamId = user.getValue().teamId;
+            String key = byTeam ? (teamId != null ? teamId : ANONYMOUS) : user.getKey();
+            Row row = rows.computeIfAbsent(key, id -> new Row(id, byTeam ? null : teamId));
+            user.getValue().families.forEach((name, usage) -> {
+                if (family == null || family.equals(name)) {
+                    row.add(name, usage);
+                }
+            });
+        }
+        List<Row> sorted = new ArrayList<>(rows.values());
+        sorted.removeIf(row -> row.totals.calls == 0);
+        sorted.sort(Comparator.comparingLong((Row row) -> sort.of(row.totals)).reversed());
+        return new Report(since, Instant.now(), sort, sorted.subList(0, Math.clamp(limit, 0, sorted.size())));
+    }
+
+    /**
+     * Forget all accounted calls and start a new period
+     */
+    public void reset() {
+        users.clear();
+        since = Instant.now();
+    }
+
+    public enum Sort {
+        CALLS, BYTES_IN, BYTES_OUT, LATENCY, RATE_LIMITED, ERRORS;
+
+        long of(Totals totals) {
+            return switch (this) {
+                case CALLS -> totals.calls;
+                case BYTES_IN -> totals.bytesIn;
+                case BYTES_OUT -> totals.bytesOut;
+                case LATENCY -> totals.latencyMillis;
+                case RATE_LIMITED -> totals.rateLimited;
+                case ERRORS -> totals.errors;
+            };
+        }
+    }
+
+    public record Report(Instant since, Instant until, Sort sortedBy, List<Row> rows) {
+    }
+
+    /**
+     * One user or team in a report, with totals and the per-family breakdown
+     */
+    public static final class Row {
+        public final String id;
+        public final String teamId;
+        public final Totals totals = new Totals();
+        public final Map<String, Totals> families = new LinkedHashMap<>();
+
+        Row(String id, String teamId) {
+            this.id = id;
+            this.teamId = teamId;
+        }
+
+        void add(String family, Usage usage) {
+            long calls = usage.calls.sum();
+            long bytesOut = usage.bytesOut.sum();
+            long bytesIn = usage.bytesIn.sum();
+            long latencyMillis = usage.latencyNanos.sum() / 1_000_000;
+            long rateLimited = usage.rateLimited.sum();
+            long errors = usage.errors.sum();
+            totals.add(calls, bytesOut, bytesIn, latencyMillis, rateLimited, errors);
+            families.computeIfAbsent(family, name -> new Totals())
+                    .add(calls, bytesOut, bytesIn, latencyMillis, rateLimited, errors);
+        }
+    }
+
+    public static final class Totals {
+        public long calls;
+        public long bytesOut;
+        public long bytesIn;
+        public long latencyMillis;
+        public long rateLimited;
+        public long errors;
+
+        void add(long calls, long bytesOut, long bytesIn, long latencyMillis, long rateLimited, long errors) {
+            this.calls += calls;
+            this.bytesOut += bytesOut;
+            this.bytesIn += bytesIn;
+            this.latencyMillis += latencyMillis;
+            this.rateLimited += rateLimited;
+            this.errors += errors;
+        }
+    }
+
+    private static final class UserUsage {
+        final Map<String, Usage> families = new ConcurrentHashMap<>();
+        /** Last team seen for the user */
+        volatile String teamId;
+    }
+
+    private static final class Usage {
+        final LongAdder calls = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+}
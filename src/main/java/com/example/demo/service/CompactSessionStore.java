@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-session records kept as compact byte arrays outside the servlet session. Holding one
+ * {@code byte[]} per session instead of an object graph keeps the per-user cost close to the
+ * size of the data itself.
+ * <p>
+ * A record lives exactly as long as its session: the owner removes it when the session is
+ * destroyed (which the container does on expiry and on logout) and moves it when the session
+ * id changes. There is no separate expiry, so a record never outlives or predeceases an
+ * active session.
+ */
+@Component
+public class CompactSessionStore {
+
+    /** Estimated bytes for a map node and its session id key */
+    private static final int ENTRY_OVERHEAD = 32 + 56;
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+
+    public CompactSessionStore(MeterRegistry meterRegistry) {
+        Gauge.builder("canva.session.store.size", entries, Map::size)
+                .description("Sessions with a record in the compact session store")
+                .register(meterRegistry);
+        Gauge.builder("canva.session.store.bytes", this, store -> store.estimatedBytes())
+                .description("Estimated heap used by the compact session store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public void put(String sessionId, byte[] value) {
+        entries.put(sessionId, value);
+    }
+
+    /**
+     * The session's record, or null if there is none
+     */
+    public byte[] get(String sessionId) {
+        return entries.get(sessionId);
+    }
+
+    public void remove(String sessionId) {
+        entries.remove(sessionId);
+    }
+
+    /**
+     * Keep a record with its session when the session id changes
+     */
+    public void rename(String oldSessionId, String newSessionId) {
+        byte[] value = entries.remove(oldSessionId);
+        if (value != null) {
+            entries.put(newSessionId, value);
+        }
+    }
+
+    public void forEachValue(Consumer<byte[]> action) {
+        entries.values().forEach(action);
+    }
+
+    /**
+     * Entry count, payload bytes and estimated total heap, overall and per session
+     */
+    public Map<String, Object> memoryReport() {
+        long[] totals = totals();
+        int count = (int) totals[0];
+        long payloadBytes = totals[1];
+        long estimatedBytes = estimatedBytes(count, payloadBytes);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sessions", count);
+        report.put("payloadBytes", payloadBytes);
+        report.put("estimatedBytes", estimatedBytes);
+        report.put("bytesPerSession", count > 0 ? estimatedBytes / count : 0);
+        return report;
+    }
+
+    private long estimatedBytes() {
+        long[] totals = totals();
+        return estimatedBytes((int) totals[0], totals[1]);
+    }
+
+    private long[] totals() {
+        long count = 0;
+        long payloadBytes = 0;
+        for (byte[] value : entries.values()) {
+            count++;
+            payloadBytes += value.length;
+        }
+        return new long[] {count, payloadBytes};
+    }
+
+    private static long estimatedBytes(int count, long payloadBytes) {
+        // Each byte[] has a 16-byte header and is padded to 8 bytes
+        return count * (ENTRY_OVERHEAD + 16L + 7) + payloadBytes;
+    }
+}
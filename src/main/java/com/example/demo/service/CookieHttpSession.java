@@ -0,0 +1,136 @@
+package com.example.demo.service;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Session whose attributes travel with the request in an encrypted cookie rather than living
+ * on the server. Only lives for one request; {@link SessionCookieCodec} reads it from the
+ * request cookies and writes it back if it changed.
+ */
+public class CookieHttpSession implements HttpSession {
+
+    private final String id;
+    private final long creationTime;
+    private final long lastAccessedTime;
+    private final ServletContext servletContext;
+    private final boolean isNew;
+    private final Map<String, Object> attributes;
+
+    private int maxInactiveInterval;
+    private boolean dirty;
+    private boolean invalidated;
+
+    CookieHttpSession(String id, long creationTime, long lastAccessedTime, int maxInactiveInterval,
+                      Map<String, Object> attributes, ServletContext servletContext, boolean isNew) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = new LinkedHashMap<>(attributes);
+        this.servletContext = servletContext;
+        this.isNew = isNew;
+        this.dirty = isNew;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public long getCreationTime() {
+        checkValid();
+        return creationTime;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkValid();
+        return lastAccessedTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        this.maxInactiveInterval = interval;
+        this.dirty = true;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkValid();
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        checkValid();
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        attributes.put(name, value);
+        dirty = true;
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkValid();
+        if (attributes.remove(name) != null) {
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        checkValid();
+        attributes.clear();
+        invalidated = true;
+        dirty = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        checkValid();
+        return isNew;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isInvalidated() {
+        return invalidated;
+    }
+
+    Map<String, Object> attributes() {
+        return attributes;
+    }
+
+    private void checkValid() {
+        if (invalidated) {
+            throw new IllegalStateException("Session already invalidated");
+        }
+    }
+}
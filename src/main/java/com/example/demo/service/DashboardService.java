@@ -0,0 +1,157 @@
+package com.example.demo.service;
+
+import com.example.demo.canva.api.BrandTemplateApi;
+import com.example.demo.canva.api.DesignApi;
+import com.example.demo.canva.api.UserApi;
+import com.example.demo.canva.client.ApiClient;
+import com.example.demo.canva.privateapi.BrandKitApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads everything the home and test pages need in one round trip by calling the
+ * Canva endpoints concurrently under a single shared deadline.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    private final AsyncTaskExecutor fanOutExecutor;
+    private final CanvaClientFactory canvaClients;
+    private final IdentityCache identityCache;
+
+    @Value("${canva.dashboard.timeout:5s}")
+    private Duration timeout;
+
+    public DashboardService(@Qualifier("canvaFanOutExecutor") AsyncTaskExecutor fanOutExecutor,
+                            CanvaClientFactory canvaClients,
+                            IdentityCache identityCache) {
+        this.fanOutExecutor = fanOutExecutor;
+        this.canvaClients = canvaClients;
+        this.identityCache = identityCache;
+    }
+
+    /**
+     * Fetch profile, capabilities, designs, brand templates and brand kits in parallel.
+     * Each section reports its own outcome, so one failing or slow branch does not hide the others.
+     * Profile and capabilities come from the identity cache of {@code userId}, when known.
+     */
+    public Map<String, Object> loadDashboard(String userId, String accessToken) {
+        long startTime = System.currentTimeMillis();
+        // The dashboard budget never outlives the deadline of the request itself
+        Deadline deadline = Deadline.after(timeout).min(CanvaRequestContext.currentDeadline());
+        CanvaRequestContext branchContext = CanvaRequestContext.current() != null
+                ? CanvaRequestContext.current().withDeadline(deadline)
+                : new CanvaRequestContext(deadline);
+
+        ApiClient apiClient = canvaClients.apiClient(accessToken);
+        com.example.demo.canva.privateclient.ApiClient privateApiClient = canvaClients.privateApiClient(accessToken);
+
+        UserApi userApi = new UserApi(apiClient);
+        DesignApi designApi = new DesignApi(apiClient);
+        BrandTemplateApi brandTemplateApi = new BrandTemplateApi(apiClient);
+        BrandKitApi brandKitApi = new BrandKitApi(privateApiClient);
+
+        // Start every branch before waiting on any of them
+        Map<String, Future<Map<String, Object>>> branches = new LinkedHashMap<>();
+        branches.put("profile", submit(branchContext,
+                () -> identityCache.get(userId, IdentityCache.Kind.PROFILE, userApi::getUserProfile)));
+        branches.put("capabilities", submit(branchContext,
+                () -> identityCache.get(userId, IdentityCache.Kind.CAPABILITIES, userApi::getUserCapabilities)));
+        branches.put("designs", submit(branchContext, () -> designApi.listDesigns(null, null, null, null)));
+        branches.put("brandTemplates", submit(branchContext, () -> brandTemplateApi.listBrandTemplates(null, null, null, null, null)));
+        branches.put("brandKits", submit(branchContext, () -> brandKitApi.listBrandKitsInternal(null, null)));
+
+        Map<String, Object> sections = new LinkedHashMap<>();
+        int failed = 0;
+        for (Map.Entry<String, Future<Map<String, Object>>> branch : branches.entrySet()) {
+            Map<String, Object> section = await(branch.getKey(), branch.getValue(), deadline);
+            if (!Boolean.TRUE.equals(section.get("success"))) {
+                failed++;
+            }
+            sections.put(branch.getKey(), section);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", failed < branches.size());
+        result.put("partial", failed > 0 && failed < branches.size());
+        result.put("duration", (System.currentTimeMillis() - startTime) + "ms");
+        result.put("timeout", timeout.toMillis() + "ms");
+        result.put("timestamp", Instant.now().toString());
+        result.put("sections", sections);
+        return result;
+    }
+
+    private Future<Map<String, Object>> submit(CanvaRequestContext context, Callable<Object> call) {
+        try {
+            return fanOutExecutor.submit(() -> {
+                Map<String, Object> section = new LinkedHashMap<>();
+                long startTime = System.currentTimeMillis();
+                try {
+                    // Upstream calls in this branch time out with the dashboard deadline
+                    Object body = CanvaRequestContext.callWith(context, call);
+                    section.put("success", true);
+                    section.put("statusCode", 200);
+                    section.put("body", body);
+                } catch (RestClientResponseException e) {
+                    section.put("success", false);
+                    section.put("statusCode", e.getStatusCode().value());
+                    section.put("error", e.getMessage());
+                    section.put("errorBody", e.getResponseBodyAsString());
+                } catch (Exception e) {
+                    section.put("success", false);
+                    section.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+                    section.put("timedOut", DeadlineExceededException.isTimeout(e));
+                }
+                section.put("duration", (System.currentTimeMillis() - startTime) + "ms");
+                return section;
+            });
+        } catch (TaskRejectedException e) {
+            // Fan-out queue is full: fail this section rather than the whole request
+            return CompletableFuture.completedFuture(failure("Too many concurrent upstream calls", false));
+        }
+    }
+
+    private Map<String, Object> await(String name, Future<Map<String, Object>> future, Deadline deadline) {
+        try {
+            return future.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Interrupt the branch so it stops waiting on the upstream call
+            future.cancel(true);
+            logger.warn("Dashboard section '{}' did not complete within {}ms", name, timeout.toMillis());
+            return failure("Timed out after " + timeout.toMillis() + "ms", true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return failure("Interrupted", false);
+        } catch (ExecutionException e) {
+            return failure("Unexpected error: " + e.getCause().getMessage(), false);
+        }
+    }
+
+    private Map<String, Object> failure(String error, boolean timedOut) {
+        Map<String, Object> section = new LinkedHashMap<>();
+        section.put("success", false);
+        section.put("error", error);
+        section.put("timedOut", timedOut);
+        return section;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+/**
+ * A point in time by which a unit of work must complete, measured on the monotonic clock.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a deadline that expires after the given timeout from now
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Remaining budget in nanoseconds; zero or negative once expired
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * Remaining budget, never negative
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, remainingNanos()));
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Return whichever of this and the other deadline expires first
+     */
+    public Deadline min(Deadline other) {
+        if (other == null) {
+            return this;
+        }
+        return (other.deadlineNanos - deadlineNanos) < 0 ? other : this;
+    }
+}
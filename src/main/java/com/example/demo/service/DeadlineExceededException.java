@@ -0,0 +1,34 @@
+package com.example.demo.service;
+
+import io.netty.handler.timeout.ReadTimeoutException;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown instead of starting an outbound call once the request deadline has already passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    /**
+     * Whether the failure was caused by running out of time, either before the call
+     * started or while waiting for the upstream response
+     */
+    public static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException
+                    || cause instanceof HttpTimeoutException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof TimeoutException
+                    || cause instanceof ReadTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when an idempotency key is reused for a request with different content.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs job-starting upstream calls (autofill, design creation) at most once per submission.
+ * A submission is identified by the client's {@code Idempotency-Key} header or, without one,
+ * by a fingerprint of its content. Repeats within the window get the original result instead
+ * of starting a new job, and repeats that arrive while the first call is still running wait
+ * for it, up to their own request deadline.
+ * <p>
+ * Only successful results are kept: if the call fails, the next identical submission runs
+ * again. Reusing a client key for different content is rejected with
+ * {@link IdempotencyConflictException}.
+ */
+@Service
+public class IdempotencyService {
+
+    /** Request header carrying a client-chosen idempotency key */
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final ObjectMapper canonicalMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Remembered results by the id of what they started, so forget() needs no scan
+    private final Map<ResultId, Key> byResultId = new ConcurrentHashMap<>();
+    private final Map<String, ScopeCounters> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration readTimeout;
+
+    @Value("${canva.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              @Value("${canva.api.read-timeout:30s}") Duration readTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.readTimeout = readTimeout;
+        Gauge.builder("canva.idempotency.entries", entries, Map::size)
+                .description("Remembered idempotent submissions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code action} unless the same submission ran within {@code window}, in which case its
+     * result is returned.
+     *
+     * @param scope       operation name, e.g. {@code autofill}
+     * @param ownerId     user (or session) the submission belongs to
+     * @param clientKey   the client's idempotency key, or null to key by {@code fingerprint}
+     * @param fingerprint content hash of the submission, see {@link #fingerprint}
+     */
+    public <T> Outcome<T> execute(String scope, String ownerId, String clientKey, String fingerprint,
+                                  Duration window, Supplier<T> action) {
+        return execute(scope, ownerId, clientKey, fingerprint, window, action, value -> null);
+    }
+
+    /**
+     * As above, also indexing the result by {@code resultId} (e.g. the started job's id) so it
+     * can later be dropped with {@link #forget}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Outcome<T> execute(String scope, String ownerId, String clientKey, String fingerprint,
+                                  Duration window, Supplier<T> action, Function<? super T, String> resultId) {
+        Key key = new Key(scope, ownerId, clientKey != null && !clientKey.isBlank() ? "key:" + clientKey : "hash:" + fingerprint);
+        Entry mine = new Entry(fingerprint);
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, mine);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired(System.nanoTime())) {
+                remove(key, existing);
+                continue;
+            }
+            ScopeCounters scopeCounters = counters(scope);
+            if (!existing.fingerprint.equals(fingerprint)) {
+                scopeCounters.conflict.increment();
+                throw new IdempotencyConflictException(
+                        "Idempotency key " + clientKey + " was already used for a different " + scope + " request");
+            }
+            scopeCounters.replayed.increment();
+            return new Outcome<>((T) await(existing, scope), true);
+        }
+
+        counters(scope).executed.increment();
+        try {
+            T value = action.get();
+            mine.expiresAtNanos = System.nanoTime() + window.toNanos();
+            String id = resultId.apply(value);
+            if (id != null) {
+                mine.resultId = new ResultId(scope, id);
+                byResultId.put(mine.resultId, key);
+            }
+            mine.result.complete(value);
+            if (entries.size() > maxEntries) {
+                // Over capacity: answer waiters but do not remember this one
+                remove(key, mine);
+            }
+            return new Outcome<>(value, false);
+        } catch (Throwable e) {
+            // Any failure, Errors included, must release waiters and let the next repeat run again
+            entries.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the first submission's result, for at most the remaining request deadline (or
+     * the read timeout outside a request)
+     */
+    private Object await(Entry existing, String scope) {
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        long timeoutNanos = deadline != null ? deadline.remainingNanos() : readTimeout.toNanos();
+        try {
+            return existing.result.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded waiting for the original " + scope + " request");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original " + scope + " request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Forget the remembered result of {@code scope} indexed as {@code resultId}, e.g. a job that
+     * later failed, so the next identical submission runs again
+     */
+    public void forget(String scope, String resultId) {
+        Key key = byResultId.get(new ResultId(scope, resultId));
+        if (key != null) {
+            Entry entry = entries.get(key);
+            if (entry != null && new ResultId(scope, resultId).equals(entry.resultId)) {
+                remove(key, entry);
+            } else {
+                byResultId.remove(new ResultId(scope, resultId), key);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${canva.idempotency.sweep-interval:1m}")
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(now)) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    private void remove(Key key, Entry entry) {
+        if (entries.remove(key, entry) && entry.resultId != null) {
+            byResultId.remove(entry.resultId, key);
+        }
+    }
+
+    /**
+     * SHA-256 over the parts, base64url-encoded. Byte arrays are hashed as-is, maps and lists as
+     * JSON with sorted keys, anything else by its string form.
+     */
+    public static String fingerprint(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                byte[] bytes = toBytes(part);
+                // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private static byte[] toBytes(Object part) throws JsonProcessingException {
+        if (part == null) {
+            return new byte[0];
+        }
+        if (part instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (part instanceof Map<?, ?> || part instanceof Iterable<?>) {
+            return canonicalMapper.writeValueAsBytes(part);
+        }
+        return part.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ScopeCounters counters(String scope) {
+        return counters.computeIfAbsent(scope, s -> new ScopeCounters(
+                counter(s, "executed"), counter(s, "replayed"), counter(s, "conflict")));
+    }
+
+    private Counter counter(String scope, String result) {
+        return Counter.builder("canva.idempotency.requests")
+                .description("Idempotent submissions by outcome")
+                .tag("scope", scope)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Result of an idempotent call; {@code replayed} is true when it came from an earlier submission
+     */
+    public record Outcome<T>(T value, boolean replayed) {
+    }
+
+    private record Key(String scope, String ownerId, String id) {
+    }
+
+    private record ResultId(String scope, String id) {
+    }
+
+    private record ScopeCounters(Counter executed, Counter replayed, Counter conflict) {
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        /** Set once the result is in; until then the entry never expires */
+        volatile long expiresAtNanos;
+        volatile ResultId resultId;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long now) {
+            return result.isDone() && now - expiresAtNanos >= 0;
+        }
+    }
+}
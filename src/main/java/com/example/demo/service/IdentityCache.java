@@ -0,0 +1,196 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Caches a user's identity data (profile, capabilities, display name), which practically never
+ * changes while they are signed in. Entries are keyed by Canva user id rather than by access
+ * token, so they outlive token refreshes; they expire after a long TTL and are dropped at
+ * logout. Concurrent misses for the same entry share one upstream call; callers joining it
+ * wait no longer than their request deadline.
+ * <p>
+ * Callers without a known user id (no session, or a login that could not resolve the user)
+ * always go upstream.
+ */
+@Service
+public class IdentityCache {
+
+    public enum Kind {
+        PROFILE, CAPABILITIES, DISPLAY_NAME
+    }
+
+    /** Session attribute holding the Canva user id, set at login */
+    public static final String USER_ID_ATTRIBUTE = "user_id";
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final Duration readTimeout;
+
+    private final Map<Kind, Counter> hits = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> joins = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> misses = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> bypasses = new EnumMap<>(Kind.class);
+
+    public IdentityCache(@Value("${canva.identity-cache.ttl:12h}") Duration ttl,
+                         @Value("${canva.api.read-timeout:30s}") Duration readTimeout,
+                         MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.readTimeout = readTimeout;
+        for (Kind kind : Kind.values()) {
+            hits.put(kind, requests(meterRegistry, kind, "hit"));
+            joins.put(kind, requests(meterRegistry, kind, "joined"));
+            misses.put(kind, requests(meterRegistry, kind, "miss"));
+            bypasses.put(kind, requests(meterRegistry, kind, "bypass"));
+        }
+        Gauge.builder("canva.identity.cache.size", entries, Map::size)
+                .description("Cached identity entries")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, Kind kind, String result) {
+        // hit and joined are upstream calls saved; miss and bypass went upstream
+        return Counter.builder("canva.identity.cache.requests")
+                .description("Identity lookups by outcome")
+                .tag("kind", kind.name().toLowerCase())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached value for the user, loading it with {@code loader} if missing or expired.
+     * A null user id skips the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String userId, Kind kind, Supplier<T> loader) {
+        CanvaJfrEvents.CacheLookup event = CanvaJfrEvents.CacheLookup.begin("identity", kind.name());
+        if (userId == null) {
+            bypasses.get(kind).increment();
+            try {
+                return loader.get();
+            } finally {
+                event.end("bypass");
+            }
+        }
+
+        Key key = new Key(userId, kind);
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            hits.get(kind).increment();
+            event.end("hit");
+            return (T) entry.value;
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            joins.get(kind).increment();
+            try {
+                return (T) await(running, kind);
+            } finally {
+                event.end("joined");
+            }
+        }
+
+        misses.get(kind).increment();
+        try {
+            T value = loader.get();
+            if (value != null) {
+                entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            }
+            load.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Joiners must never wait on a load that will not complete
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+            event.end("miss");
+        }
+    }
+
+    /**
+     * Drop everything cached for the user
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        for (Kind kind : Kind.values()) {
+            entries.remove(new Key(userId, kind));
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${canva.identity-cache.sweep-interval:5m}")
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+    }
+
+    /**
+     * Canva user id stored in the session at login, or null
+     */
+    public static String userId(HttpSession session) {
+        if (session == null) {
+            return null;
+        }
+        try {
+            return (String) session.getAttribute(USER_ID_ATTRIBUTE);
+        } catch (IllegalStateException e) {
+            // Session was invalidated mid-request
+            return null;
+        }
+    }
+
+    /**
+     * Wait for a load started by another caller, for at most the remaining request deadline
+     * (or the read timeout outside a request)
+     */
+    private Object await(CompletableFuture<Object> running, Kind kind) {
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        long timeoutNanos = deadline != null ? deadline.remainingNanos() : readTimeout.toNanos();
+        try {
+            return running.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded waiting for cached " + kind.name().toLowerCase());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cached " + kind.name().toLowerCase(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record Key(String userId, Kind kind) {
+    }
+
+    private record Entry(Object value, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts, stops and dumps one continuous JDK Flight Recorder recording of this node, so a
+ * low-overhead profile can be taken from a live instance (see {@code /api/admin/jfr}).
+ * The recording includes the {@link CanvaJfrEvents}; allocation, lock and CPU samples can
+ * be related to them by thread and time in JDK Mission Control.
+ * <p>
+ * The recording keeps at most {@code canva.jfr.max-age} / {@code canva.jfr.max-size} of
+ * data in its disk repository, so it can be left running. Dumps are temporary files that the
+ * caller deletes once it has sent them.
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingService.class);
+
+    private final Path dumpDirectory;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+
+    public JfrRecordingService(@Value("${canva.jfr.dump-directory:${canva.data-dir}/jfr}") String dumpDirectory,
+                               @Value("${canva.jfr.max-age:30m}") Duration maxAge,
+                               @Value("${canva.jfr.max-size-mb:250}") long maxSizeMb) {
+        this.dumpDirectory = Path.of(dumpDirectory);
+        this.maxAge = maxAge;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Start the recording with one of the JDK's settings, {@code default} (about 1% overhead)
+     * or {@code profile} (more allocation and lock detail, about 2%)
+     *
+     * @return false if a recording is already running
+     */
+    public synchronized boolean start(String settings) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        closeRecording();
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        started.setName("canva-" + settings);
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeBytes);
+        started.start();
+        recording = started;
+        logger.info("Started JFR recording {} with '{}' settings", started.getId(), settings);
+        return true;
+    }
+
+    /**
+     * Stop the recording; its data stays available to {@link #dump} until the next start
+     *
+     * @return false if no recording is running
+     */
+    public synchronized boolean stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return false;
+        }
+        recording.stop();
+        logger.info("Stopped JFR recording {}", recording.getId());
+        return true;
+    }
+
+    /**
+     * Write the data recorded so far to a new temporary file in the dump directory; the
+     * recording keeps running if it was. The caller must delete the file.
+     *
+     * @return the file, or null if nothing was ever recorded
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return null;
+        }
+        Files.createDirectories(dumpDirectory);
+        Path file = Files.createTempFile(dumpDirectory, "canva-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        logger.info("Dumped JFR recording {} ({} bytes)", recording.getId(), Files.size(file));
+        return file;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("id", recording.getId());
+        status.put("name", recording.getName());
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("maxAge", recording.getMaxAge());
+        status.put("sizeBytes", recording.getSize());
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
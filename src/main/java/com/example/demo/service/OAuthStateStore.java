@@ -1,59 +1,258 @@
 package com.example.demo.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * In-memory store for OAuth state and PKCE parameters.
  * Used as a fallback when HTTP sessions don't work properly across redirects.
+ * <p>
+ * Every entry has the same TTL, so insertion order is also expiry order: expired entries are
+ * always at the head of a FIFO queue and are removed in amortised O(1), both on write and by
+ * a periodic sweep. When the store is full the oldest pending login is evicted. Redeemed
+ * logins leave a stale queue node behind; once the queue holds twice the capacity those are
+ * purged, so it stays bounded whatever the mix of logins and redirects.
+ * Expiry uses the monotonic clock, so wall-clock adjustments cannot extend or cut a TTL.
+ * <p>
+ * Ids of redeemed stateless states are kept apart, in their own bounded FIFO, and are never
+ * evicted before the TTL: flooding {@code /oauth/authorize} cannot push them out and reopen a
+ * state for replay. When that set is full, further redemptions are refused until markers expire.
  */
 @Component
 public class OAuthStateStore {
 
     private final Map<String, StateData> stateStore = new ConcurrentHashMap<>();
+    private final Queue<StateData> expiryQueue = new ConcurrentLinkedQueue<>();
+    /** Length of {@link #expiryQueue}, whose own size() is O(n) */
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
 
-    public void store(String state, String codeVerifier) {
-        // Clean up expired entries first
-        cleanExpired();
+    private final Map<String, RedeemedId> redeemedIds = new ConcurrentHashMap<>();
+    private final Queue<RedeemedId> redeemedQueue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock redeemedDrainLock = new ReentrantLock();
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder redeemedRefused = new LongAdder();
+
+    private final long ttlNanos;
+    private final int capacity;
+    private final int redeemedCapacity;
+
+    public OAuthStateStore(@Value("${canva.oauth.state-ttl:10m}") Duration ttl,
+                           @Value("${canva.oauth.state-capacity:100000}") int capacity,
+                           @Value("${canva.oauth.redeemed-capacity:100000}") int redeemedCapacity,
+                           MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.capacity = capacity;
+        this.redeemedCapacity = redeemedCapacity;
+
+        Gauge.builder("canva.oauth.state.size", stateStore, Map::size)
+                .description("Pending OAuth logins held in the state store")
+                .register(meterRegistry);
+        FunctionCounter.builder("canva.oauth.state.expired", expired, LongAdder::sum)
+                .description("OAuth states removed because their TTL elapsed")
+                .register(meterRegistry);
+        FunctionCounter.builder("canva.oauth.state.evicted", evicted, LongAdder::sum)
+                .description("OAuth states evicted before expiry because the store was full")
+                .register(meterRegistry);
+        Gauge.builder("canva.oauth.state.redeemed.size", redeemedIds, Map::size)
+                .description("Redeemed stateless state ids remembered to refuse replays")
+                .register(meterRegistry);
+        FunctionCounter.builder("canva.oauth.state.redeemed.refused", redeemedRefused, LongAdder::sum)
+                .description("Stateless redemptions refused because the redeemed-id set was full")
+                .register(meterRegistry);
+    }
 
-        StateData data = new StateData(codeVerifier, Instant.now().plusSeconds(600)); // 10 minutes TTL
+    public void store(String state, String codeVerifier) {
+        StateData data = new StateData(state, codeVerifier, System.nanoTime() + ttlNanos);
         stateStore.put(state, data);
+        expiryQueue.add(data);
+        queued.incrementAndGet();
+
+        // Only entries already due are touched, so each write does a bounded amount of work
+        drain(System.nanoTime());
     }
 
     public String getCodeVerifier(String state) {
+        if (state == null) {
+            return null;
+        }
         StateData data = stateStore.get(state);
         if (data == null) {
             return null;
         }
 
         // Check if expired
-        if (Instant.now().isAfter(data.expiresAt)) {
-            stateStore.remove(state);
+        if (data.isExpired(System.nanoTime())) {
+            if (stateStore.remove(state, data)) {
+                expired.increment();
+            }
             return null;
         }
 
         return data.codeVerifier;
     }
 
+    /**
+     * Atomically remove a state and return its code verifier, so a state can be redeemed at
+     * most once even if the redirect is replayed concurrently.
+     */
+    public String consume(String state) {
+        if (state == null) {
+            return null;
+        }
+        StateData data = stateStore.remove(state);
+        if (data == null) {
+            return null;
+        }
+        if (data.isExpired(System.nanoTime())) {
+            expired.increment();
+            return null;
+        }
+        return data.codeVerifier;
+    }
+
+    /**
+     * Record that a stateless state id has been redeemed. Returns false if it already was, or
+     * if the redeemed-id set is full. The marker lives for the full TTL, which outlasts the
+     * state it belongs to, and is never evicted early.
+     */
+    public boolean markRedeemed(String stateId) {
+        long now = System.nanoTime();
+        drainRedeemed(now);
+        if (redeemedIds.size() >= redeemedCapacity) {
+            // Refusing is safe; forgetting an id that is still valid would allow a replay
+            redeemedRefused.increment();
+            return false;
+        }
+        RedeemedId marker = new RedeemedId(stateId, now + ttlNanos);
+        if (redeemedIds.putIfAbsent(stateId, marker) != null) {
+            return false;
+        }
+        redeemedQueue.add(marker);
+        return true;
+    }
+
     public void remove(String state) {
         stateStore.remove(state);
     }
 
-    private void cleanExpired() {
-        Instant now = Instant.now();
-        stateStore.entrySet().removeIf(entry -> now.isAfter(entry.getValue().expiresAt));
+    public int size() {
+        return stateStore.size();
+    }
+
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    public int redeemedSize() {
+        return redeemedIds.size();
+    }
+
+    /**
+     * Nodes in the expiry queue, live or stale
+     */
+    int queuedSize() {
+        return queued.get();
+    }
+
+    /**
+     * Expire entries that no login has touched since their TTL elapsed
+     */
+    @Scheduled(fixedDelayString = "${canva.oauth.state-sweep-interval:30s}")
+    public void sweep() {
+        long now = System.nanoTime();
+        drain(now);
+        drainRedeemed(now);
+    }
+
+    private void drain(long now) {
+        // A concurrent drainer is already doing this work
+        if (!drainLock.tryLock()) {
+            return;
+        }
+        try {
+            StateData head;
+            while ((head = expiryQueue.peek()) != null) {
+                boolean due = head.isExpired(now);
+                if (!due && stateStore.size() <= capacity) {
+                    break;
+                }
+                expiryQueue.poll();
+                queued.decrementAndGet();
+                // Entries already consumed or replaced only leave a stale queue node behind
+                if (stateStore.remove(head.state, head)) {
+                    if (due) {
+                        expired.increment();
+                    } else {
+                        evicted.increment();
+                    }
+                }
+            }
+            if (queued.get() > 2L * capacity) {
+                // Mostly stale nodes of redeemed logins; at most one pass per capacity writes
+                expiryQueue.removeIf(node -> {
+                    if (stateStore.get(node.state) == node) {
+                        return false;
+                    }
+                    queued.decrementAndGet();
+                    return true;
+                });
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainRedeemed(long now) {
+        if (!redeemedDrainLock.tryLock()) {
+            return;
+        }
+        try {
+            RedeemedId head;
+            while ((head = redeemedQueue.peek()) != null && now - head.expiresAtNanos() >= 0) {
+                redeemedQueue.poll();
+                redeemedIds.remove(head.stateId(), head);
+            }
+        } finally {
+            redeemedDrainLock.unlock();
+        }
+    }
+
+    private record RedeemedId(String stateId, long expiresAtNanos) {
     }
 
     private static class StateData {
+        final String state;
         final String codeVerifier;
-        final Instant expiresAt;
+        final long expiresAtNanos;
 
-        StateData(String codeVerifier, Instant expiresAt) {
+        StateData(String state, String codeVerifier, long expiresAtNanos) {
+            this.state = state;
             this.codeVerifier = codeVerifier;
-            this.expiresAt = expiresAt;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
         }
     }
 }
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed PKCE material (code verifier, S256 challenge and state) for the authorize
+ * endpoint. A background thread keeps a bounded queue topped up from one shared
+ * {@link SecureRandom}, so a burst of logins mostly just dequeues. If the pool runs dry the
+ * caller generates its own material inline, so authorize never waits on the refill thread.
+ */
+@Component
+public class PkceMaterialPool {
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final BlockingQueue<PkceMaterial> pool;
+    private final LongAdder misses = new LongAdder();
+    private Thread refillThread;
+
+    public PkceMaterialPool(@Value("${canva.oauth.pkce-pool-size:256}") int poolSize, MeterRegistry meterRegistry) {
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+
+        Gauge.builder("canva.oauth.pkce.pool.size", pool, BlockingQueue::size)
+                .description("Precomputed PKCE triples ready for use")
+                .register(meterRegistry);
+        FunctionCounter.builder("canva.oauth.pkce.pool.misses", misses, LongAdder::sum)
+                .description("Authorize requests that found the PKCE pool empty")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        refillThread = Thread.ofPlatform().name("pkce-refill").daemon(true).unstarted(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    // Blocks while the pool is full
+                    pool.put(generate());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        refillThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refillThread != null) {
+            refillThread.interrupt();
+        }
+    }
+
+    /**
+     * Take a fresh, never-before-used PKCE triple
+     */
+    public PkceMaterial next() {
+        PkceMaterial material = pool.poll();
+        if (material == null) {
+            misses.increment();
+            return generate();
+        }
+        return material;
+    }
+
+    public static PkceMaterial generate() {
+        String codeVerifier = randomToken();
+        return new PkceMaterial(codeVerifier, challenge(codeVerifier), randomToken());
+    }
+
+    /**
+     * S256 code challenge for a code verifier
+     */
+    public static String challenge(String codeVerifier) {
+        byte[] hash = SHA_256.get().digest(codeVerifier.getBytes(StandardCharsets.US_ASCII));
+        return URL_ENCODER.encodeToString(hash);
+    }
+
+    /**
+     * 32 random bytes, base64url encoded
+     */
+    public static String randomToken() {
+        byte[] bytes = new byte[32];
+        SECURE_RANDOM.nextBytes(bytes);
+        return URL_ENCODER.encodeToString(bytes);
+    }
+
+    public record PkceMaterial(String codeVerifier, String codeChallenge, String state) {
+    }
+}
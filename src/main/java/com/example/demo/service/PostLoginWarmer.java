@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import com.example.demo.canva.model.BrandTemplate;
+import com.example.demo.canva.model.ListBrandTemplatesResponse;
+import com.example.demo.canva.model.OwnershipType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Prefetches what the formations page loads first, right after a successful login: the
+ * user's owned brand templates and their datasets, and the folders in the root folder.
+ * Results land in {@link CanvaCatalogService}, so the first page view is served from memory.
+ * <p>
+ * Warm-up runs on its own low-priority executor under its own deadline, calling the catalog
+ * directly rather than through the hedger's shared executor. It is best effort:
+ * failures are logged at debug level and tasks that do not fit the executor are dropped.
+ */
+@Service
+public class PostLoginWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostLoginWarmer.class);
+
+    private final AsyncTaskExecutor executor;
+    private final CanvaCatalogService catalog;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter rejected;
+
+    @Value("${canva.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${canva.warmup.timeout:30s}")
+    private Duration timeout;
+
+    public PostLoginWarmer(@Qualifier("canvaWarmupExecutor") AsyncTaskExecutor executor,
+                           CanvaCatalogService catalog,
+                           MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.catalog = catalog;
+        this.completed = tasks(meterRegistry, "completed");
+        this.failed = tasks(meterRegistry, "failed");
+        this.rejected = tasks(meterRegistry, "rejected");
+    }
+
+    private static Counter tasks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("canva.warmup.tasks")
+                .description("Post-login prefetch calls by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start warming the user's caches in the background; returns immediately
+     */
+    public void warm(String userId, String accessToken) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        // Not tied to the login request, which is about to complete; calls are booked to the user
+        CanvaRequestContext context = new CanvaRequestContext(Deadline.after(timeout)).withUserId(userId);
+        submit(context, "brand templates", () -> {
+            ListBrandTemplatesResponse templates = catalog.listBrandTemplates(userId, accessToken, null, OwnershipType.OWNED);
+            if (templates.getItems() != null) {
+                for (BrandTemplate template : templates.getItems()) {
+                    submit(context, "dataset " + template.getId(),
+                            () -> catalog.prefetchBrandTemplateDataset(userId, accessToken, template.getId()));
+                }
+            }
+        });
+        submit(context, "root folders", () -> catalog.listFolderItems(userId, accessToken, "root", "folder"));
+    }
+
+    private void submit(CanvaRequestContext context, String name, WarmupTask task) {
+        try {
+            executor.execute(() -> {
+                if (context.getDeadline().isExpired()) {
+                    rejected.increment();
+                    return;
+                }
+                try {
+                    CanvaRequestContext.callWith(context, () -> {
+                        task.run();
+                        return null;
+                    });
+                    completed.increment();
+                } catch (Exception e) {
+                    failed.increment();
+                    logger.debug("Warm-up of {} failed: {}", name, e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            logger.debug("Warm-up of {} skipped, executor is saturated", name);
+        }
+    }
+
+    @FunctionalInterface
+    private interface WarmupTask {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.demo.service;
+
+import com.example.demo.canva.model.*;
+import com.example.demo.canva.reactive.api.BrandTemplateApi;
+import com.example.demo.canva.reactive.api.DesignApi;
+import com.example.demo.canva.reactive.api.FolderApi;
+import com.example.demo.canva.reactive.api.UserApi;
+import com.example.demo.canva.reactive.client.ApiClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking counterpart of {@link CanvaService}, built on the generated WebClient client.
+ * Intended for fan-out flows such as bulk autofill, multi-page listing and job polling, where
+ * many upstream calls are in flight at once.
+ * <p>
+ * Every publisher is bounded by the deadline of the request that assembled it, if any, and
+ * carries that request's context, so a call that fails with 401 is retried once with a
+ * refreshed token like on the blocking path (see {@link com.example.demo.config.TokenRefreshFilter}).
+ */
+@Service
+public class ReactiveCanvaService {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_MAP = new ParameterizedTypeReference<>() {};
+
+    private final WebClient canvaWebClient;
+
+    @Value("${canva.api.base-url:https://api.canva.com/rest}")
+    private String baseUrl;
+
+    @Value("${canva.reactive.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${canva.reactive.bulk-concurrency:32}")
+    private int bulkConcurrency;
+
+    public ReactiveCanvaService(@Qualifier("canvaWebClient") WebClient canvaWebClient) {
+        this.canvaWebClient = canvaWebClient;
+    }
+
+    /**
+     * Get the user's profile
+     */
+    public Mono<UserProfileResponse> getUserProfile(String accessToken) {
+        return withDeadline(new UserApi(apiClient(accessToken)).getUserProfile());
+    }
+
+    /**
+     * Get the user's capabilities
+     */
+    public Mono<GetUserCapabilitiesResponse> getUserCapabilities(String accessToken) {
+        return withDeadline(new UserApi(apiClient(accessToken)).getUserCapabilities());
+    }
+
+    /**
+     * List one page of designs
+     */
+    public Mono<GetListDesignResponse> listDesigns(String accessToken, String query, String continuation,
+                                                   OwnershipType ownership, SortByType sortBy) {
+        return withDeadline(new DesignApi(apiClient(accessToken)).listDesigns(query, continuation, ownership, sortBy));
+    }
+
+    /**
+     * Stream every design across all pages, following continuation tokens
+     */
+    public Flux<Design> listAllDesigns(String accessToken, String query, OwnershipType ownership, SortByType sortBy) {
+        DesignApi designApi = new DesignApi(apiClient(accessToken));
+        return withDeadline(designApi.listDesigns(query, null, ownership, sortBy)
+                .expand(page -> page.getContinuation() != null
+                        ? designApi.listDesigns(query, page.getContinuation(), ownership, sortBy)
+                        : Mono.empty())
+                .flatMapIterable(page -> page.getItems() != null ? page.getItems() : List.of()));
+    }
+
+    /**
+     * Get a specific design
+     */
+    public Mono<GetDesignResponse> getDesign(String accessToken, String designId) {
+        return withDeadline(new DesignApi(apiClient(accessToken)).getDesign(designId));
+    }
+
+    /**
+     * List one page of brand templates
+     */
+    public Mono<ListBrandTemplatesResponse> listBrandTemplates(String accessToken, String query, String continuation,
+                                                               OwnershipType ownership) {
+        return withDeadline(new BrandTemplateApi(apiClient(accessToken)).listBrandTemplates(query, continuation, ownership, null, null));
+    }
+
+    /**
+     * List items in a folder
+     */
+    public Mono<ListFolderItemsResponse> listFolderItems(String accessToken, String folderId, String continuation,
+                                                         List<FolderItemType> itemTypes, FolderItemSortBy sortBy) {
+        return withDeadline(new FolderApi(apiClient(accessToken)).listFolderItems(folderId, continuation, itemTypes, sortBy));
+    }
+
+    /**
+     * Get a brand template's dataset as raw JSON, matching how the blocking autofill flow reads it
+     */
+    public Mono<Map<String, Object>> getBrandTemplateDataset(String accessToken, String brandTemplateId) {
+        return withDeadline(canvaWebClient.get()
+                .uri(baseUrl + "/v1/brand-templates/" + brandTemplateId + "/dataset")
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve()
+                .bodyToMono(JSON_MAP));
+    }
+
+    /**
+     * Start an autofill job; returns the {@code job} object of the response
+     */
+    @SuppressWarnings("unchecked")
+    public Mono<Map<String, Object>> createAutofillJob(String accessToken, String brandTemplateId, Map<String, Object> data) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("brand_template_id", brandTemplateId);
+        body.put("data", data);
+
+        return withDeadline(canvaWebClient.post()
+                .uri(baseUrl + "/v1/autofills")
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JSON_MAP)
+                .map(response -> (Map<String, Object>) response.get("job")));
+    }
+
+    /**
+     * Get the current state of an autofill job; returns the {@code job} object of the response
+     */
+    @SuppressWarnings("unchecked")
+    public Mono<Map<String, Object>> getAutofillJob(String accessToken, String jobId) {
+        return withDeadline(canvaWebClient.get()
+                .uri(baseUrl + "/v1/autofills/" + jobId)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve()
+                .bodyToMono(JSON_MAP)
+                .map(response -> (Map<String, Object>) response.get("job")));
+    }
+
+    /**
+     * Poll an autofill job until it leaves the {@code in_progress} state.
+     * Waiting between polls uses a timer, not a thread.
+     */
+    public Mono<Map<String, Object>> awaitAutofillJob(String accessToken, String jobId) {
+        return withDeadline(getAutofillJob(accessToken, jobId)
+                .expand(job -> isInProgress(job)
+                        ? Mono.delay(pollInterval).then(getAutofillJob(accessToken, jobId))
+                        : Mono.empty())
+                .last());
+    }
+
+    /**
+     * Autofill one brand template with many datasets, running up to the configured number of
+     * create-and-poll pipelines at once. Results are emitted as jobs finish.
+     */
+    public Flux<Map<String, Object>> bulkAutofill(String accessToken, String brandTemplateId, List<Map<String, Object>> datasets) {
+        return withDeadline(Flux.fromIterable(datasets)
+                .flatMap(data -> createAutofillJob(accessToken, brandTemplateId, data)
+                                .flatMap(job -> isInProgress(job)
+                                        ? awaitAutofillJob(accessToken, (String) job.get("id"))
+                                        : Mono.just(job)),
+                        bulkConcurrency));
+    }
+
+    private ApiClient apiClient(String accessToken) {
+        ApiClient apiClient = new ApiClient(canvaWebClient);
+        apiClient.setBasePath(baseUrl);
+        apiClient.addDefaultHeader("Authorization", "Bearer " + accessToken);
+        return apiClient;
+    }
+
+    private static boolean isInProgress(Map<String, Object> job) {
+        return job != null && "in_progress".equals(job.get("status"));
+    }
+
+    private static <T> Mono<T> withDeadline(Mono<T> mono) {
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        if (deadline == null) {
+            return withCaller(mono);
+        }
+        return withCaller(mono.timeout(deadline.remaining())
+                .onErrorMap(TimeoutException.class, e -> deadlineExceeded()));
+    }
+
+    /**
+     * Fail the stream with {@link DeadlineExceededException} once the request deadline passes,
+     * rather than completing it early as if every element had been delivered
+     */
+    private static <T> Flux<T> withDeadline(Flux<T> flux) {
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        if (deadline == null) {
+            return withCaller(flux);
+        }
+        return withCaller(Flux.defer(() -> {
+            AtomicBoolean expired = new AtomicBoolean();
+            return flux.takeUntilOther(Mono.delay(deadline.remaining()).doOnNext(tick -> expired.set(true)))
+                    .concatWith(Mono.defer(() -> expired.get() ? Mono.<T>error(deadlineExceeded()) : Mono.<T>empty()));
+        }));
+    }
+
+    /**
+     * Carry the caller's request context in the Reactor context, so that calls subscribed on
+     * an event-loop thread (later pages, polls) are still attributed to the caller's user
+     */
+    private static <T> Mono<T> withCaller(Mono<T> mono) {
+        CanvaRequestContext caller = CanvaRequestContext.current();
+        return caller != null ? mono.contextWrite(Context.of(CanvaRequestContext.class, caller)) : mono;
+    }
+
+    private static <T> Flux<T> withCaller(Flux<T> flux) {
+        CanvaRequestContext caller = CanvaRequestContext.current();
+        return caller != null ? flux.contextWrite(Context.of(CanvaRequestContext.class, caller)) : flux;
+    }
+
+    private static DeadlineExceededException deadlineExceeded() {
+        return new DeadlineExceededException("Request deadline exceeded before Canva answered");
+    }
+}
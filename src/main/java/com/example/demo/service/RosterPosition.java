@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+/**
+ * Fixed slots of a saved team. The key is the form field and template property name, so
+ * rosters still render as the flat map the soccer pages and autofill mapping expect.
+ */
+public enum RosterPosition {
+
+    TEAM_NAME("teamName"),
+    GOALKEEPER("goalkeeper"),
+    CENTER_BACK_1("centerBack1"),
+    CENTER_BACK_2("centerBack2"),
+    LEFT_BACK("leftBack"),
+    RIGHT_BACK("rightBack"),
+    MIDFIELDER_1("midfielder1"),
+    MIDFIELDER_2("midfielder2"),
+    MIDFIELDER_3("midfielder3"),
+    LEFT_WING("leftWing"),
+    RIGHT_WING("rightWing"),
+    STRIKER("striker");
+
+    private static final RosterPosition[] VALUES = values();
+
+    private final String key;
+
+    RosterPosition(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    static RosterPosition[] all() {
+        return VALUES;
+    }
+
+    /**
+     * Position for a form field or template key, or null if there is none
+     */
+    public static RosterPosition fromKey(String key) {
+        for (RosterPosition position : VALUES) {
+            if (position.key.equals(key)) {
+                return position;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.demo.service;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.Cookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes {@link CookieHttpSession}s. Attributes are written in a small tagged binary
+ * format, deflated, sealed with {@link AeadCodec} and split across as many cookies as needed.
+ * The payload carries its own last-access time, so an idle session expires without any
+ * server-side record.
+ * <p>
+ * Supported attribute types are String, Integer, Long, Boolean and Map&lt;String, String&gt;,
+ * which covers everything the application keeps in its session. Other values are dropped.
+ */
+@Component
+public class SessionCookieCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionCookieCodec.class);
+
+    private static final String PURPOSE = "session";
+    private static final byte VERSION = 1;
+    private static final int ID_LENGTH = 16;
+    private static final int CHUNK_SIZE = 3800;
+    private static final int MAX_CHUNKS = 8;
+    private static final int MAX_INFLATED_SIZE = 64 * 1024;
+
+    private static final byte TYPE_STRING = 'S';
+    private static final byte TYPE_INT = 'I';
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_BOOLEAN = 'Z';
+    private static final byte TYPE_STRING_MAP = 'M';
+
+    private final AeadCodec aeadCodec;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${canva.session.cookie-name:CANVA_SESSION}")
+    private String cookieName;
+
+    @Value("${server.servlet.session.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${server.servlet.session.cookie.secure:false}")
+    private boolean secure;
+
+    @Value("${server.servlet.session.cookie.same-site:lax}")
+    private String sameSite;
+
+    public SessionCookieCodec(AeadCodec aeadCodec) {
+        this.aeadCodec = aeadCodec;
+    }
+
+    /**
+     * Session carried by the request's cookies, or a new empty one if there is none or it
+     * cannot be opened or has expired
+     */
+    public CookieHttpSession read(Cookie[] cookies, ServletContext servletContext) {
+        long now = System.currentTimeMillis();
+        String token = joinChunks(cookies);
+        if (token != null) {
+            byte[] sealed = aeadCodec.open(token, PURPOSE);
+            if (sealed != null) {
+                try {
+                    CookieHttpSession session = decode(inflate(sealed), now, servletContext);
+                    if (session != null) {
+                        return session;
+                    }
+                } catch (IOException | DataFormatException e) {
+                    logger.debug("Discarding unreadable session cookie: {}", e.getMessage());
+                }
+            }
+        }
+        return newSession(now, servletContext);
+    }
+
+    /**
+     * Whether the session has to be sent back: it changed, or it was last written long enough
+     * ago that its idle timeout should be pushed forward
+     */
+    public boolean needsWrite(CookieHttpSession session) {
+        if (session.isInvalidated()) {
+            return true;
+        }
+        if (session.isDirty()) {
+            return !(session.isNew() && session.attributes().isEmpty());
+        }
+        long idleMillis = System.currentTimeMillis() - session.getLastAccessedTime();
+        return idleMillis > session.getMaxInactiveInterval() * 1000L / 4;
+    }
+
+    /**
+     * Cookies to set for the session, including expired ones for chunks it no longer needs
+     */
+    public List<Cookie> write(CookieHttpSession session, int previousChunks) {
+        List<Cookie> result = new ArrayList<>();
+        int chunks = 0;
+        if (!session.isInvalidated()) {
+            String token = aeadCodec.seal(deflate(encode(session)), PURPOSE);
+            chunks = (token.length() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            if (chunks > MAX_CHUNKS) {
+                throw new IllegalStateException("Session of " + token.length() + " bytes is too large for cookie mode");
+            }
+            for (int i = 0; i < chunks; i++) {
+                String value = token.substring(i * CHUNK_SIZE, Math.min(token.length(), (i + 1) * CHUNK_SIZE));
+                result.add(cookie(chunkName(i), value, -1));
+            }
+        }
+        for (int i = chunks; i < previousChunks; i++) {
+            result.add(cookie(chunkName(i), "", 0));
+        }
+        return result;
+    }
+
+    /**
+     * Number of session chunk cookies the request carried
+     */
+    public int countChunks(Cookie[] cookies) {
+        int count = 0;
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(cookieName) || cookie.getName().startsWith(cookieName + "_")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * New empty session, e.g. to replace one invalidated during the request
+     */
+    public CookieHttpSession create(ServletContext servletContext) {
+        long now = System.currentTimeMillis();
+        return newSession(now, servletContext);
+    }
+
+    private CookieHttpSession newSession(long now, ServletContext servletContext) {
+        byte[] id = new byte[ID_LENGTH];
+        secureRandom.nextBytes(id);
+        return new CookieHttpSession(Base64.getUrlEncoder().withoutPadding().encodeToString(id),
+                now, now, (int) timeout.toSeconds(), Map.of(), servletContext, true);
+    }
+
+    private String joinChunks(Cookie[] cookies) {
+        if (cookies == null) {
+            return null;
+        }
+        String[] chunks = new String[MAX_CHUNKS];
+        int count = 0;
+        for (Cookie cookie : cookies) {
+            int index = chunkIndex(cookie.getName());
+            if (index >= 0 && index < MAX_CHUNKS) {
+                chunks[index] = cookie.getValue();
+                count = Math.max(count, index + 1);
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        StringBuilder token = new StringBuilder(count * CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            if (chunks[i] == null) {
+                return null;
+            }
+            token.append(chunks[i]);
+        }
+        return token.toString();
+    }
+
+    private String chunkName(int index) {
+        return index == 0 ? cookieName : cookieName + "_" + index;
+    }
+
+    private int chunkIndex(String name) {
+        if (name.equals(cookieName)) {
+            return 0;
+        }
+        if (name.startsWith(cookieName + "_")) {
+            try {
+                return Integer.parseInt(name.substring(cookieName.length() + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private Cookie cookie(String name, String value, int maxAge) {
+        Cookie cookie = new Cookie(name, value);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(secure);
+        cookie.setMaxAge(maxAge);
+        if (sameSite != null && !sameSite.isEmpty()) {
+            cookie.setAttribute("SameSite", StringUtils.capitalize(sameSite.toLowerCase(Locale.ROOT)));
+        }
+        return cookie;
+    }
+
+    private byte[] encode(CookieHttpSession session) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(session.getId());
+            out.writeLong(session.getCreationTime());
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(session.getMaxInactiveInterval());
+
+            List<Map.Entry<String, Object>> entries = new ArrayList<>(session.attributes().entrySet());
+            entries.removeIf(entry -> !isSupported(entry.getKey(), entry.getValue()));
+            out.writeShort(entries.size());
+            for (Map.Entry<String, Object> entry : entries) {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode session", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private CookieHttpSession decode(byte[] payload, long now, ServletContext servletContext) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (in.readByte() != VERSION) {
+            return null;
+        }
+        String id = in.readUTF();
+        long creationTime = in.readLong();
+        long lastAccessedTime = in.readLong();
+        int maxInactiveInterval = in.readInt();
+        if (maxInactiveInterval > 0 && now - lastAccessedTime > maxInactiveInterval * 1000L) {
+            return null;
+        }
+
+        int count = in.readUnsignedShort();
+        Map<String, Object> attributes = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            attributes.put(in.readUTF(), readValue(in));
+        }
+        return new CookieHttpSession(id, creationTime, lastAccessedTime, maxInactiveInterval,
+                attributes, servletContext, false);
+    }
+
+    private static boolean isSupported(String name, Object value) {
+        if (value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+            return true;
+        }
+        if (value instanceof Map<?, ?> map && map.entrySet().stream()
+                .allMatch(e -> e.getKey() instanceof String && (e.getValue() == null || e.getValue() instanceof String))) {
+            return true;
+        }
+        logger.warn("Session attribute {} of type {} cannot be stored in a session cookie", name, value.getClass().getName());
+        return false;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String string) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF(string);
+        } else if (value instanceof Integer number) {
+            out.writeByte(TYPE_INT);
+            out.writeInt(number);
+        } else if (value instanceof Long number) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(number);
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(flag);
+        } else {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TYPE_STRING_MAP);
+            out.writeShort(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.writeUTF((String) entry.getKey());
+                out.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    out.writeUTF((String) entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_STRING_MAP:
+                int size = in.readUnsignedShort();
+                Map<String, String> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    String key = in.readUTF();
+                    map.put(key, in.readBoolean() ? in.readUTF() : null);
+                }
+                return map;
+            default:
+                throw new IOException("Unknown attribute type " + type);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException, IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated session payload");
+                }
+                out.write(buffer, 0, inflated);
+                if (out.size() > MAX_INFLATED_SIZE) {
+                    throw new IOException("Session payload too large");
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
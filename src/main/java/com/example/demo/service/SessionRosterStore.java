@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionIdListener;
+import jakarta.servlet.http.HttpSessionListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Where a user's saved team lives. Server-side sessions keep it as a compact record in
+ * {@link CompactSessionStore} rather than as a map attribute, for as long as the session
+ * lives; cookie sessions keep it in the cookie, since they must not depend on node-local state.
+ */
+@Service
+public class SessionRosterStore implements HttpSessionListener, HttpSessionIdListener {
+
+    static final String ATTRIBUTE = "team_data";
+
+    private final CompactSessionStore store;
+
+    public SessionRosterStore(CompactSessionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * The session's saved team, or null if none was saved
+     */
+    public TeamRoster load(HttpSession session) {
+        if (session instanceof CookieHttpSession) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> values = (Map<String, String>) session.getAttribute(ATTRIBUTE);
+            return values != null ? TeamRoster.of(values) : null;
+        }
+        byte[] record = store.get(session.getId());
+        return record != null ? TeamRoster.fromBytes(record) : null;
+    }
+
+    public void save(HttpSession session, TeamRoster roster) {
+        if (session instanceof CookieHttpSession) {
+            // Drop empty slots so they do not take space in the cookie
+            Map<String, String> values = new LinkedHashMap<>(roster.toMap());
+            values.values().removeIf(value -> value == null);
+            session.setAttribute(ATTRIBUTE, values);
+            return;
+        }
+        store.put(session.getId(), roster.toBytes());
+    }
+
+    /**
+     * Memory used by stored rosters, next to an estimate of what the same rosters would take as
+     * {@code HashMap<String, String>} session attributes
+     */
+    public Map<String, Object> memoryReport() {
+        Map<String, Object> report = new LinkedHashMap<>(store.memoryReport());
+        long[] mapBytes = new long[1];
+        store.forEachValue(record -> mapBytes[0] += hashMapEstimate(TeamRoster.fromBytes(record)));
+        int sessions = (int) report.get("sessions");
+        report.put("hashMapEstimatedBytes", mapBytes[0]);
+        report.put("hashMapBytesPerSession", sessions > 0 ? mapBytes[0] / sessions : 0);
+        return report;
+    }
+
+    /**
+     * HashMap (48) with a 32-bucket table (144), one node per slot (32 each) and the value
+     * strings (40 plus their Latin-1 length each); the literal keys are shared
+     */
+    private static long hashMapEstimate(TeamRoster roster) {
+        long bytes = 48 + 144;
+        for (RosterPosition position : RosterPosition.all()) {
+            String value = roster.get(position);
+            bytes += 32;
+            if (value != null) {
+                bytes += 40 + ((value.length() + 7) & ~7);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        store.remove(event.getSession().getId());
+    }
+
+    @Override
+    public void sessionIdChanged(HttpSessionEvent event, String oldSessionId) {
+        store.rename(oldSessionId, event.getSession().getId());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Carries the PKCE code verifier inside the OAuth {@code state} parameter itself, encrypted
+ * and authenticated with {@link AeadCodec}, so any node can finish a login without sticky
+ * sessions or shared storage.
+ * <p>
+ * The token holds an absolute expiry (wall clock, since it may be checked on another node)
+ * and a random id. Redeemed ids are remembered locally until the token would have expired,
+ * so a state cannot be replayed against the same node. Across nodes, Canva's single-use
+ * authorization codes prevent a replayed redirect from yielding a second token.
+ */
+@Component
+public class StatelessOAuthState {
+
+    private static final String PURPOSE = "oauth-state";
+    private static final int ID_LENGTH = 16;
+
+    private final AeadCodec aeadCodec;
+    private final OAuthStateStore redeemed;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Duration ttl;
+
+    public StatelessOAuthState(AeadCodec aeadCodec, OAuthStateStore stateStore,
+                               @Value("${canva.oauth.state-ttl:10m}") Duration ttl) {
+        this.aeadCodec = aeadCodec;
+        this.redeemed = stateStore;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Build a state parameter that carries the given code verifier
+     */
+    public String encode(String codeVerifier) {
+        byte[] verifier = codeVerifier.getBytes(StandardCharsets.US_ASCII);
+        byte[] id = new byte[ID_LENGTH];
+        secureRandom.nextBytes(id);
+
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES + ID_LENGTH + verifier.length);
+        payload.putLong(System.currentTimeMillis() + ttl.toMillis()).put(id).put(verifier);
+        return aeadCodec.seal(payload.array(), PURPOSE);
+    }
+
+    /**
+     * Recover the code verifier from a state parameter. Returns null if the state is forged,
+     * expired or has already been redeemed on this node.
+     */
+    public String decode(String state) {
+        byte[] payload = aeadCodec.open(state, PURPOSE);
+        if (payload == null || payload.length <= Long.BYTES + ID_LENGTH) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (System.currentTimeMillis() > buffer.getLong()) {
+            return null;
+        }
+        byte[] id = new byte[ID_LENGTH];
+        buffer.get(id);
+        if (!redeemed.markRedeemed(Base64.getUrlEncoder().withoutPadding().encodeToString(id))) {
+            return null;
+        }
+
+        byte[] verifier = new byte[buffer.remaining()];
+        buffer.get(verifier);
+        return new String(verifier, StandardCharsets.US_ASCII);
+    }
+}
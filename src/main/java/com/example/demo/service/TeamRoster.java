@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A saved team as one fixed-slot record: one array entry per {@link RosterPosition} instead of
+ * a map with its own copy of every key. Immutable; {@link #toBytes()} gives the compact form
+ * kept by {@link CompactSessionStore}.
+ */
+public final class TeamRoster {
+
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    /** Longest team name the {@code team_name} column holds, see {@code schema.sql} */
+    public static final int MAX_TEAM_NAME_LENGTH = 255;
+    /** Largest {@link #toBytes()} record the {@code roster} column holds */
+    public static final int MAX_ENCODED_BYTES = 8192;
+
+    private final String[] slots;
+
+    private TeamRoster(String[] slots) {
+        this.slots = slots;
+    }
+
+    public static TeamRoster of(Map<String, String> values) {
+        String[] slots = new String[RosterPosition.all().length];
+        for (RosterPosition position : RosterPosition.all()) {
+            slots[position.ordinal()] = values.get(position.key());
+        }
+        return new TeamRoster(slots);
+    }
+
+    /**
+     * The line-up shown before a user saves their own team
+     */
+    public static TeamRoster defaults() {
+        String[] slots = new String[RosterPosition.all().length];
+        slots[RosterPosition.TEAM_NAME.ordinal()] = "All stars";
+        slots[RosterPosition.GOALKEEPER.ordinal()] = "Marcos";
+        slots[RosterPosition.CENTER_BACK_1.ordinal()] = "Gamarra";
+        slots[RosterPosition.CENTER_BACK_2.ordinal()] = "Thiago Silva";
+        slots[RosterPosition.LEFT_BACK.ordinal()] = "Roberto Carlos";
+        slots[RosterPosition.RIGHT_BACK.ordinal()] = "Cafu";
+        slots[RosterPosition.MIDFIELDER_1.ordinal()] = "Casemiro";
+        slots[RosterPosition.MIDFIELDER_2.ordinal()] = "Dunga";
+        slots[RosterPosition.MIDFIELDER_3.ordinal()] = "Messi";
+        slots[RosterPosition.LEFT_WING.ordinal()] = "Neymar";
+        slots[RosterPosition.RIGHT_WING.ordinal()] = "Cristiano Ronaldo";
+        slots[RosterPosition.STRIKER.ordinal()] = "Ronaldo";
+        return new TeamRoster(slots);
+    }
+
+    public String get(RosterPosition position) {
+        return slots[position.ordinal()];
+    }
+
+    public String teamName() {
+        return get(RosterPosition.TEAM_NAME);
+    }
+
+    /**
+     * Flat view keyed by form field name, for templates and dataset mapping. Built per use,
+     * never stored.
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>(slots.length * 2);
+        for (RosterPosition position : RosterPosition.all()) {
+            map.put(position.key(), slots[position.ordinal()]);
+        }
+        return map;
+    }
+
+    /**
+     * Autofill data for a brand template's dataset: each dataset field whose name matches a
+     * roster key (case-insensitive) gets that slot's text
+     */
+    public Map<String, Object> toAutofillData(Map<String, Object> dataset) {
+        // Create an uppercase lookup map for case-insensitive matching
+        Map<String, String> teamDataUppercase = new HashMap<>();
+        for (Map.Entry<String, String> entry : toMap().entrySet()) {
+            teamDataUppercase.put(entry.getKey().toUpperCase(), entry.getValue());
+        }
+
+        Map<String, Object> dataMap = new HashMap<>();
+
+        if (dataset != null) {
+            for (Map.Entry<String, Object> entry : dataset.entrySet()) {
+                String fieldName = entry.getKey();
+
+                // Try to find matching team data (case-insensitive)
+                String teamValue = teamDataUppercase.get(fieldName.toUpperCase());
+                if (teamValue != null) {
+                    // Create a raw map for the dataset value
+                    Map<String, Object> datasetValue = new HashMap<>();
+                    datasetValue.put("type", "text");
+                    datasetValue.put("text", teamValue);
+                    dataMap.put(fieldName, datasetValue);
+                }
+            }
+        }
+        return dataMap;
+    }
+
+    /**
+     * Why this roster cannot be saved to the database, or null if it can
+     */
+    public String validationError() {
+        String teamName = teamName();
+        if (teamName == null || teamName.isBlank()) {
+            return "Team name is required";
+        }
+        if (teamName.length() > MAX_TEAM_NAME_LENGTH) {
+            return "Team name is longer than " + MAX_TEAM_NAME_LENGTH + " characters";
+        }
+        try {
+            if (toBytes().length > MAX_ENCODED_BYTES) {
+                return "Team is larger than " + MAX_ENCODED_BYTES + " bytes";
+            }
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Slot count, then per slot a two-byte length (0xFFFF for empty) and UTF-8 bytes
+     */
+    public byte[] toBytes() {
+        byte[][] encoded = new byte[slots.length][];
+        int size = 1;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                encoded[i] = slots[i].getBytes(StandardCharsets.UTF_8);
+                if (encoded[i].length >= NULL_LENGTH) {
+                    throw new IllegalArgumentException("Roster value too long for " + RosterPosition.all()[i].key());
+                }
+                size += encoded[i].length;
+            }
+            size += 2;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) slots.length);
+        for (byte[] value : encoded) {
+            if (value == null) {
+                buffer.putShort((short) NULL_LENGTH);
+            } else {
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static TeamRoster fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count = buffer.get() & 0xFF;
+        String[] slots = new String[RosterPosition.all().length];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getShort() & 0xFFFF;
+            if (length == NULL_LENGTH) {
+                continue;
+            }
+            String value = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            // Slots added after this record was written stay empty
+            if (i < slots.length) {
+                slots[i] = value;
+            }
+        }
+        return new TeamRoster(slots);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TeamRoster other && Arrays.equals(slots, other.slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(slots);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saved team rosters in the embedded database, keyed by owner (Canva user id) and team name.
+ * The primary key on (owner_id, team_name) serves every lookup.
+ */
+@Repository
+public class TeamRosterRepository {
+
+    /** Bound on IN-list size for batch reads */
+    private static final int BATCH_READ_SIZE = 500;
+
+    private final JdbcClient jdbcClient;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeamRosterRepository(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate) {
+        this.jdbcClient = jdbcClient;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public TeamRoster find(String ownerId, String teamName) {
+        return jdbcClient.sql("SELECT roster FROM team_roster WHERE owner_id = ? AND team_name = ?")
+                .params(ownerId, teamName)
+                .query((rs, rowNum) -> TeamRoster.fromBytes(rs.getBytes("roster")))
+                .optional()
+                .orElse(null);
+    }
+
+    /**
+     * Team names saved by the owner, most recently updated first
+     */
+    public List<String> findTeamNames(String ownerId) {
+        return jdbcClient.sql("SELECT team_name FROM team_roster WHERE owner_id = ? ORDER BY updated_at DESC")
+                .param(ownerId)
+                .query(String.class)
+                .list();
+    }
+
+    /**
+     * Several of the owner's teams in as few queries as possible, keyed by team name.
+     * Names with no saved team are left out.
+     */
+    public Map<String, TeamRoster> findAll(String ownerId, Collection<String> teamNames) {
+        Map<String, TeamRoster> result = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(teamNames);
+        for (int from = 0; from < names.size(); from += BATCH_READ_SIZE) {
+            List<String> batch = names.subList(from, Math.min(names.size(), from + BATCH_READ_SIZE));
+            jdbcClient.sql("SELECT team_name, roster FROM team_roster WHERE owner_id = :owner AND team_name IN (:names)")
+                    .param("owner", ownerId)
+                    .param("names", batch)
+                    .query((rs, rowNum) -> Map.entry(rs.getString("team_name"), TeamRoster.fromBytes(rs.getBytes("roster"))))
+                    .list()
+                    .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Insert or replace rosters in one batch
+     */
+    public void saveAll(Collection<SavedRoster> rosters) {
+        List<Object[]> rows = new ArrayList<>(rosters.size());
+        for (SavedRoster saved : rosters) {
+            rows.add(new Object[] {
+                    saved.ownerId(), saved.roster().teamName(), saved.roster().toBytes(), Timestamp.from(saved.savedAt())
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "MERGE INTO team_roster (owner_id, team_name, roster, updated_at) KEY (owner_id, team_name) VALUES (?, ?, ?, ?)",
+                rows);
+    }
+
+    public record SavedRoster(String ownerId, TeamRoster roster, Instant savedAt) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.demo.service;
+
+import com.example.demo.service.TeamRosterRepository.SavedRoster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saved rosters with write-behind: saves land in an in-memory buffer and return immediately,
+ * and a background thread writes them to {@link TeamRosterRepository} in batches. Repeated
+ * saves of the same team before a flush are coalesced. Reads check the buffer first, so a
+ * save is visible at once.
+ * <p>
+ * When a batch fails its rows are written one at a time, so one bad row does not hold back
+ * the rest. A row the database rejects outright is dropped and logged; a row that failed for
+ * any other reason stays buffered for the next flush.
+ */
+@Service
+public class TeamRosterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamRosterService.class);
+
+    private final TeamRosterRepository repository;
+    private final Map<Key, SavedRoster> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+
+    @Value("${canva.rosters.write-behind.flush-interval:500ms}")
+    private Duration flushInterval;
+
+    @Value("${canva.rosters.write-behind.batch-size:200}")
+    private int batchSize;
+
+    private Thread flusher;
+    private volatile boolean running;
+
+    public TeamRosterService(TeamRosterRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        Gauge.builder("canva.rosters.write-behind.pending", pending, Map::size)
+                .description("Saved rosters waiting to be written to the database")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("canva.rosters.write-behind.flushed")
+                .description("Rosters written to the database")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("canva.rosters.write-behind.failed")
+                .description("Roster batches that failed to write and were retried row by row")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("canva.rosters.write-behind.dropped")
+                .description("Rosters dropped because the database rejected them")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("roster-write-behind").daemon(true).start(this::runFlusher);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(5000);
+        // Whatever is still buffered goes out before the database shuts down
+        flush();
+    }
+
+    /**
+     * Buffer a roster for writing; never waits for the database
+     */
+    public void save(String ownerId, TeamRoster roster) {
+        pending.put(new Key(ownerId, roster.teamName()), new SavedRoster(ownerId, roster, Instant.now()));
+        if (pending.size() >= batchSize) {
+            signalFlush();
+        }
+    }
+
+    public TeamRoster find(String ownerId, String teamName) {
+        SavedRoster buffered = pending.get(new Key(ownerId, teamName));
+        if (buffered != null) {
+            return buffered.roster();
+        }
+        return repository.find(ownerId, teamName);
+    }
+
+    /**
+     * Batch read for bulk flows, keyed by team name
+     */
+    public Map<String, TeamRoster> findAll(String ownerId, Collection<String> teamNames) {
+        Map<String, TeamRoster> result = new LinkedHashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String teamName : teamNames) {
+            SavedRoster buffered = pending.get(new Key(ownerId, teamName));
+            if (buffered != null) {
+                result.put(teamName, buffered.roster());
+            } else {
+                toLoad.add(teamName);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            result.putAll(repository.findAll(ownerId, toLoad));
+        }
+        return result;
+    }
+
+    public List<String> findTeamNames(String ownerId) {
+        List<String> names = new ArrayList<>();
+        for (SavedRoster buffered : pending.values()) {
+            if (buffered.ownerId().equals(ownerId)) {
+                names.add(buffered.roster().teamName());
+            }
+        }
+        for (String name : repository.findTeamNames(ownerId)) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private void runFlusher() {
+        while (running) {
+            lock.lock();
+            try {
+                if (pending.size() < batchSize) {
+                    flushRequested.awaitNanos(flushInterval.toNanos());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        while (!pending.isEmpty()) {
+            List<Map.Entry<Key, SavedRoster>> batch = new ArrayList<>(batchSize);
+            for (Map.Entry<Key, SavedRoster> entry : pending.entrySet()) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                if (batch.size() == batchSize) {
+                    break;
+                }
+            }
+
+            try {
+                repository.saveAll(batch.stream().map(Map.Entry::getValue).toList());
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                logger.warn("Failed to write {} rosters, retrying them one at a time: {}", batch.size(), e.getMessage());
+                if (!flushOneByOne(batch)) {
+                    // Rows that failed stay buffered until the next flush
+                    return;
+                }
+                continue;
+            }
+
+            for (Map.Entry<Key, SavedRoster> entry : batch) {
+                written(entry);
+            }
+            flushedCounter.increment(batch.size());
+        }
+    }
+
+    /**
+     * Write each row of a failed batch on its own; true when none of them is left buffered
+     */
+    private boolean flushOneByOne(List<Map.Entry<Key, SavedRoster>> batch) {
+        boolean allDone = true;
+        for (Map.Entry<Key, SavedRoster> entry : batch) {
+            try {
+                repository.saveAll(List.of(entry.getValue()));
+                written(entry);
+                flushedCounter.increment();
+            } catch (DataIntegrityViolationException | IllegalArgumentException e) {
+                // Too long for its column or not encodable: retrying cannot help
+                logger.error("Dropping roster '{}' of {}: {}",
+                        entry.getKey().teamName(), entry.getKey().ownerId(), e.getMessage());
+                written(entry);
+                droppedCounter.increment();
+            } catch (RuntimeException e) {
+                allDone = false;
+            }
+        }
+        return allDone;
+    }
+
+    private void written(Map.Entry<Key, SavedRoster> entry) {
+        // A newer save of the same team stays buffered for the next batch
+        pending.remove(entry.getKey(), entry.getValue());
+    }
+
+    private void signalFlush() {
+        if (lock.tryLock()) {
+            try {
+                flushRequested.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private record Key(String ownerId, String teamName) {
+    }
+}
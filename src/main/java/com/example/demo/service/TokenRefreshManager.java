@@ -0,0 +1,278 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps session access tokens fresh. Each token is refreshed shortly before it expires, at a
+ * randomly jittered time so tokens issued together do not all refresh at once. Concurrent
+ * refreshes for one session (scheduled, or triggered by several 401s) share a single token
+ * call.
+ * <p>
+ * Server-side sessions are refreshed in the background and stop being tracked when destroyed.
+ * A {@link CookieHttpSession} only reaches the browser with a response, so it is refreshed on
+ * the first request after its refresh time instead, see {@link #refreshIfDue}. Concurrent
+ * requests may carry the same old cookie; every token set issued to a cookie session gets a
+ * generation number, and the latest set is kept for as long as such a request can run so that
+ * it can {@link #catchUp catch up} rather than write back a cookie with the rotated-out refresh
+ * token.
+ */
+@Service
+public class TokenRefreshManager implements HttpSessionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRefreshManager.class);
+
+    /** Epoch millis at which the session's token should be refreshed */
+    static final String REFRESH_AT_ATTRIBUTE = "token_refresh_at";
+
+    /** Number of token sets issued to a cookie session; a higher number is newer */
+    static final String TOKEN_GENERATION_ATTRIBUTE = "token_generation";
+
+    private static final List<String> TOKEN_ATTRIBUTES =
+            List.of("access_token", "refresh_token", "expires_in", REFRESH_AT_ATTRIBUTE, TOKEN_GENERATION_ATTRIBUTE);
+
+    private final CanvaOAuthService oauthService;
+    private final TaskScheduler taskScheduler;
+    private final AsyncTaskExecutor executor;
+
+    /** Refreshes in progress by session id; empty when nothing is refreshing */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    /** Newest token set issued to each cookie session on this node, for a few request timeouts */
+    private final Map<String, IssuedTokens> issuedToCookieSessions = new ConcurrentHashMap<>();
+
+    private final Counter refreshed;
+    private final Counter failed;
+    private final Counter joined;
+
+    @Value("${canva.oauth.refresh-lead:5m}")
+    private Duration refreshLead;
+
+    @Value("${canva.oauth.refresh-jitter:2m}")
+    private Duration refreshJitter;
+
+    @Value("${canva.api.request-timeout:15s}")
+    private Duration requestTimeout;
+
+    public TokenRefreshManager(CanvaOAuthService oauthService, TaskScheduler taskScheduler,
+                               @Qualifier("canvaFanOutExecutor") AsyncTaskExecutor executor,
+                               MeterRegistry meterRegistry) {
+        this.oauthService = oauthService;
+        this.taskScheduler = taskScheduler;
+        this.executor = executor;
+        this.refreshed = Counter.builder("canva.oauth.refresh")
+                .description("Access token refreshes")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.failed = Counter.builder("canva.oauth.refresh")
+                .description("Access token refreshes")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        this.joined = Counter.builder("canva.oauth.refresh.joined")
+                .description("Refresh requests served by a refresh already in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Store a token response in the session and schedule its refresh
+     */
+    public void register(HttpSession session, Map<String, Object> tokenResponse) {
+        apply(session, tokenResponse);
+    }
+
+    /**
+     * Get a token newer than {@code staleAccessToken} for the session, refreshing if nobody has
+     * yet. Returns null if the session has no refresh token or the refresh failed.
+     */
+    public String refresh(HttpSession session, String staleAccessToken) {
+        String sessionId = session.getId();
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(sessionId, flight);
+        if (existing != null) {
+            joined.increment();
+            String accessToken = await(existing);
+            // A cookie session is a per-request copy; give it the tokens the leader stored
+            catchUp(session);
+            return accessToken;
+        }
+
+        try {
+            String current = (String) session.getAttribute("access_token");
+            if (current != null && !current.equals(staleAccessToken)) {
+                // Another caller refreshed between our failed call and now
+                flight.complete(current);
+                return current;
+            }
+            String refreshToken = (String) session.getAttribute("refresh_token");
+            if (refreshToken == null) {
+                flight.complete(null);
+                return null;
+            }
+
+            Map<String, Object> tokenResponse = oauthService.refreshAccessToken(refreshToken);
+            apply(session, tokenResponse);
+            refreshed.increment();
+            String accessToken = (String) tokenResponse.get("access_token");
+            flight.complete(accessToken);
+            return accessToken;
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.warn("Token refresh failed for session {}: {}", sessionId, e.getMessage());
+            flight.complete(null);
+            return null;
+        } finally {
+            inFlight.remove(sessionId, flight);
+        }
+    }
+
+    /**
+     * Refresh the session's token now if its refresh time has passed. Used for sessions that
+     * cannot be refreshed in the background.
+     */
+    public void refreshIfDue(HttpSession session) {
+        catchUp(session);
+        if (session.getAttribute(REFRESH_AT_ATTRIBUTE) instanceof Long refreshAt
+                && System.currentTimeMillis() >= refreshAt) {
+            refresh(session, (String) session.getAttribute("access_token"));
+        }
+    }
+
+    /**
+     * Bring a cookie session up to the newest token set this node issued to it, if the cookie
+     * it came from is older. Called before the session is used and again before its cookie is
+     * written, so a request that started with an old cookie never re-issues it.
+     */
+    public void catchUp(HttpSession session) {
+        if (!(session instanceof CookieHttpSession cookieSession) || cookieSession.isInvalidated()) {
+            return;
+        }
+        IssuedTokens latest = issuedToCookieSessions.get(session.getId());
+        if (latest != null && generation(session) < latest.generation()) {
+            latest.attributes().forEach(session::setAttribute);
+        }
+    }
+
+    /**
+     * Forget token sets issued long enough ago that every request started before them is done
+     */
+    @Scheduled(fixedDelayString = "${canva.session.store.sweep-interval:1m}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        issuedToCookieSessions.values().removeIf(issued -> now >= issued.keepUntilMillis());
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        ScheduledFuture<?> task = scheduled.remove(event.getSession().getId());
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    private void apply(HttpSession session, Map<String, Object> tokenResponse) {
+        Object refreshToken = tokenResponse.get("refresh_token");
+        if (refreshToken != null) {
+            session.setAttribute("refresh_token", refreshToken);
+        }
+        session.setAttribute("expires_in", tokenResponse.get("expires_in"));
+        // Written last: readers that see the new access token also see its refresh token
+        session.setAttribute("access_token", tokenResponse.get("access_token"));
+
+        if (tokenResponse.get("expires_in") instanceof Number expiresIn) {
+            Duration delay = refreshDelay(Duration.ofSeconds(expiresIn.longValue()));
+            if (session instanceof CookieHttpSession) {
+                long now = System.currentTimeMillis();
+                session.setAttribute(REFRESH_AT_ATTRIBUTE, now + delay.toMillis());
+                session.setAttribute(TOKEN_GENERATION_ATTRIBUTE, generation(session) + 1);
+                remember(session, now + requestTimeout.multipliedBy(2).toMillis());
+            } else {
+                schedule(session, delay);
+            }
+        }
+    }
+
+    private Duration refreshDelay(Duration lifetime) {
+        Duration delay = lifetime.minus(refreshLead);
+        if (delay.compareTo(lifetime.dividedBy(2)) < 0) {
+            // Short-lived token: refresh halfway through instead
+            delay = lifetime.dividedBy(2);
+        }
+        long jitterMillis = Math.min(refreshJitter.toMillis(), delay.toMillis() / 2);
+        if (jitterMillis > 0) {
+            delay = delay.minusMillis(ThreadLocalRandom.current().nextLong(jitterMillis));
+        }
+        return delay;
+    }
+
+    private void schedule(HttpSession session, Duration delay) {
+        String scheduledFor = (String) session.getAttribute("access_token");
+        // The scheduler only triggers; the token call itself runs on the fan-out executor, with
+        // the session bound so that it is accounted to the session's user
+        CanvaRequestContext context = new CanvaRequestContext(null, session);
+        ScheduledFuture<?> task = taskScheduler.schedule(
+                () -> executor.execute(() -> CanvaRequestContext.runWith(context, () -> refresh(session, scheduledFor))),
+                Instant.now().plus(delay));
+        ScheduledFuture<?> previous = scheduled.put(session.getId(), task);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void remember(HttpSession session, long keepUntilMillis) {
+        Map<String, Object> tokens = new HashMap<>();
+        for (String name : TOKEN_ATTRIBUTES) {
+            Object value = session.getAttribute(name);
+            if (value != null) {
+                tokens.put(name, value);
+            }
+        }
+        IssuedTokens issued = new IssuedTokens(generation(session), Map.copyOf(tokens), keepUntilMillis);
+        issuedToCookieSessions.merge(session.getId(), issued,
+                (previous, next) -> next.generation() > previous.generation() ? next : previous);
+    }
+
+    private static long generation(HttpSession session) {
+        return session.getAttribute(TOKEN_GENERATION_ATTRIBUTE) instanceof Long generation ? generation : 0;
+    }
+
+    private record IssuedTokens(long generation, Map<String, Object> attributes, long keepUntilMillis) {
+    }
+
+    private static String await(CompletableFuture<String> flight) {
+        Deadline deadline = CanvaRequestContext.currentDeadline();
+        try {
+            return deadline != null
+                    ? flight.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS)
+                    : flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+}
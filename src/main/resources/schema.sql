@@ -0,0 +1,9 @@
+-- Saved team rosters, one row per owner and team name.
+-- The roster column holds TeamRoster's compact binary form.
+CREATE TABLE IF NOT EXISTS team_roster (
+    owner_id   VARCHAR(64)    NOT NULL,
+    team_name  VARCHAR(255)   NOT NULL,
+    roster     VARBINARY(8192) NOT NULL,
+    updated_at TIMESTAMP      NOT NULL,
+    PRIMARY KEY (owner_id, team_name)
+);
@@ -0,0 +1,124 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.canva.client.ApiClient;
+import com.example.demo.canva.model.GetListDesignResponse;
+import com.example.demo.service.RosterPosition;
+import com.example.demo.service.TeamRoster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request payload work around Canva calls:
+ * <ul>
+ *   <li>{@code datasetMapping}: filling a brand template dataset from a saved team, as
+ *       {@code /soccer/create-autofill} does for every job</li>
+ *   <li>{@code rawMapParse} vs {@code typedParse}: a design list parsed into a plain
+ *       {@code Map} (how the raw-JSON endpoints read responses) or into the generated
+ *       {@link GetListDesignResponse} with the generated client's mapper</li>
+ * </ul>
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.benchmark.CanvaPayloadBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CanvaPayloadBenchmark {
+
+    /** Designs in the listing; Canva pages hold up to 100 */
+    @Param({"10", "100"})
+    public int designs;
+
+    private final ObjectMapper rawMapper = new ObjectMapper();
+    private final ObjectMapper typedMapper = ApiClient.createDefaultObjectMapper(null);
+
+    private TeamRoster roster;
+    private Map<String, Object> dataset;
+    private String designList;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        roster = TeamRoster.defaults();
+        dataset = (Map<String, Object>) rawMapper.readValue(datasetJson(), Map.class).get("dataset");
+        designList = designListJson(designs);
+    }
+
+    @Benchmark
+    public Map<String, Object> datasetMapping() {
+        return roster.toAutofillData(dataset);
+    }
+
+    @Benchmark
+    public Map<?, ?> rawMapParse() throws Exception {
+        return rawMapper.readValue(designList, Map.class);
+    }
+
+    @Benchmark
+    public GetListDesignResponse typedParse() throws Exception {
+        return typedMapper.readValue(designList, GetListDesignResponse.class);
+    }
+
+    /**
+     * A match-day template: every roster field (in the template's upper case) plus image and
+     * chart fields the roster does not fill
+     */
+    static String datasetJson() {
+        StringBuilder json = new StringBuilder("{\"dataset\":{");
+        for (RosterPosition position : RosterPosition.values()) {
+            json.append('"').append(position.key().toUpperCase()).append("\":{\"type\":\"text\"},");
+        }
+        json.append("\"HOME_CREST\":{\"type\":\"image\"},\"AWAY_CREST\":{\"type\":\"image\"},")
+                .append("\"FORM_CHART\":{\"type\":\"chart\"}}}");
+        return json.toString();
+    }
+
+    static String designListJson(int count) {
+        StringBuilder json = new StringBuilder("{\"continuation\":\"RkFGMgXlsVTDbMd:MR3L0QjiaUzycIAjx0yMyuNiV0Oildoi\",\"items\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String id = "DAFVztcvd9z" + i;
+            json.append("{\"id\":\"").append(id).append('"')
+                    .append(",\"title\":\"Match day line-up ").append(i).append('"')
+                    .append(",\"owner\":{\"user_id\":\"oUnPjZ2k2yuhftbWF7873o\",\"team_id\":\"oBpVhLW22VrqtwKgaayRbP\"}")
+                    .append(",\"thumbnail\":{\"width\":595,\"height\":335,\"url\":\"https://document-export.canva.com/")
+                    .append(id).append("/thumbnail/0001.png?X-Amz-Expires=1800\"}")
+                    .append(",\"urls\":{\"edit_url\":\"https://www.canva.com/api/design/").append(id)
+                    .append("/edit\",\"view_url\":\"https://www.canva.com/api/design/").append(id).append("/view\"}")
+                    .append(",\"created_at\":1377396000,\"updated_at\":1692928800,\"page_count\":").append(1 + i % 5)
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CanvaPayloadBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request/response envelope every {@code ApiTestController} endpoint builds around a
+ * Canva call and serialises for the test page, reproduced from {@code testGetProfile}: maps for
+ * the request, its headers and the response, two {@code Instant} timestamps formatted as text,
+ * and the response body. {@code build} is the envelope alone, {@code buildAndWrite} includes
+ * writing it as JSON, as Spring MVC does when returning it.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.benchmark.DiagnosticEnvelopeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiagnosticEnvelopeBenchmark {
+
+    private static final String BASE_URL = "https://api.canva.com/rest";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Object> profile = Map.of("profile", Map.of("display_name", "Jane Doe"));
+    private final String componentVariants = "button:primary,card:compact";
+
+    @Benchmark
+    public Map<String, Object> build() {
+        return envelope(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] buildAndWrite() throws Exception {
+        return objectMapper.writeValueAsBytes(envelope(System.currentTimeMillis()));
+    }
+
+    private Map<String, Object> envelope(long startTime) {
+        Map<String, Object> result = new HashMap<>();
+
+        Map<String, Object> requestDetails = new HashMap<>();
+        requestDetails.put("method", "GET");
+        requestDetails.put("endpoint", BASE_URL + "/v1/users/me/profile");
+        requestDetails.put("timestamp", Instant.now().toString());
+        requestDetails.put("authentication", "Bearer token (from session)");
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer ***");
+        headers.put("Content-Type", "application/json");
+        headers.put("X-Canva-Component-Variants", componentVariants);
+        requestDetails.put("headers", headers);
+        result.put("request", requestDetails);
+
+        long duration = System.currentTimeMillis() - startTime;
+        Map<String, Object> responseDetails = new HashMap<>();
+        responseDetails.put("statusCode", 200);
+        responseDetails.put("status", "OK");
+        responseDetails.put("duration", duration + "ms");
+        responseDetails.put("timestamp", Instant.now().toString());
+        Map<String, Object> body = new HashMap<>();
+        body.put("display_name", "Jane Doe");
+        body.put("profile", profile);
+        responseDetails.put("body", body);
+        result.put("response", responseDetails);
+        result.put("success", true);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DiagnosticEnvelopeBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
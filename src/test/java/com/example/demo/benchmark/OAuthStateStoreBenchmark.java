@@ -0,0 +1,103 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.OAuthStateStore;
+import com.example.demo.service.PkceMaterialPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OAuthStateStore} under contention: a login burst where every thread stores a new
+ * state, and the mixed case of logins starting ({@code store}) while redirects come back
+ * ({@code getCodeVerifier}) against a store holding {@code PRELOADED} pending logins.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.benchmark.OAuthStateStoreBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OAuthStateStoreBenchmark {
+
+    private static final int PRELOADED = 50_000;
+
+    private OAuthStateStore store;
+    private String[] states;
+    private String verifier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Capacity above what a trial writes, so the numbers do not include eviction
+        store = new OAuthStateStore(Duration.ofMinutes(10), 50_000_000, 50_000_000, new SimpleMeterRegistry());
+        verifier = PkceMaterialPool.randomToken();
+        states = new String[PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            states[i] = PkceMaterialPool.randomToken();
+            store.store(states[i], verifier);
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void storeBurst(ThreadState thread) {
+        store.store(thread.nextState(), verifier);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public void store(ThreadState thread) {
+        store.store(thread.nextState(), verifier);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public String getCodeVerifier() {
+        return store.getCodeVerifier(states[ThreadLocalRandom.current().nextInt(PRELOADED)]);
+    }
+
+    /**
+     * Unique states per thread without generating random tokens inside the measurement
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final String prefix = PkceMaterialPool.randomToken();
+        private long counter;
+
+        String nextState() {
+            return prefix + counter++;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OAuthStateStoreBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
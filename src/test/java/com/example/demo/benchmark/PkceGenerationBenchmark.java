@@ -0,0 +1,114 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.CanvaOAuthProperties;
+import com.example.demo.service.CanvaOAuthService;
+import com.example.demo.service.PkceMaterialPool;
+import com.example.demo.service.PkceMaterialPool.PkceMaterial;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing PKCE material for one authorize request under concurrent load:
+ * the original per-call code (new SecureRandom and MessageDigest lookup every time),
+ * inline generation with shared RNG and per-thread digest, and taking from the pool.
+ * Sustained demand beyond what one refill thread produces drains the pool, so {@code pooled}
+ * then measures the miss path; the pool pays off for bursts shorter than its size.
+ * {@code oauthService} is what the login endpoint calls today, through {@link CanvaOAuthService}.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.benchmark.PkceGenerationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class PkceGenerationBenchmark {
+
+    private PkceMaterialPool pool;
+    private CanvaOAuthService oauthService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new PkceMaterialPool(256, new SimpleMeterRegistry());
+        pool.start();
+        // No call is made, so the transport and interceptors are never used
+        ClientHttpRequestInterceptor passThrough = (request, body, execution) -> execution.execute(request, body);
+        oauthService = new CanvaOAuthService(new CanvaOAuthProperties(), new SimpleClientHttpRequestFactory(),
+                passThrough, passThrough);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.stop();
+    }
+
+    @Benchmark
+    public String[] perCall() throws Exception {
+        SecureRandom verifierRandom = new SecureRandom();
+        byte[] verifierBytes = new byte[32];
+        verifierRandom.nextBytes(verifierBytes);
+        String codeVerifier = Base64.getUrlEncoder().withoutPadding().encodeToString(verifierBytes);
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(codeVerifier.getBytes(StandardCharsets.UTF_8));
+        String codeChallenge = Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+
+        SecureRandom stateRandom = new SecureRandom();
+        byte[] stateBytes = new byte[32];
+        stateRandom.nextBytes(stateBytes);
+        String state = Base64.getUrlEncoder().withoutPadding().encodeToString(stateBytes);
+
+        return new String[] {codeVerifier, codeChallenge, state};
+    }
+
+    @Benchmark
+    public PkceMaterial sharedInline() {
+        return PkceMaterialPool.generate();
+    }
+
+    @Benchmark
+    public String[] oauthService() {
+        String codeVerifier = oauthService.generateCodeVerifier();
+        return new String[] {codeVerifier, oauthService.generateCodeChallenge(codeVerifier), oauthService.generateState()};
+    }
+
+    @Benchmark
+    public PkceMaterial pooled() {
+        return pool.next();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PkceGenerationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.AeadCodec;
+import com.example.demo.service.CookieHttpSession;
+import com.example.demo.service.SessionCookieCodec;
+import jakarta.servlet.http.Cookie;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.session.StandardSession;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares per-user server memory and per-request cost of Tomcat sessions with the encrypted
+ * cookie session mode, for a population of logged-in users with a saved team.
+ * <p>
+ * Tomcat mode: retained heap of real {@link StandardSession}s held by a {@link StandardManager}.
+ * Cookie mode: nothing is retained between requests; the cost moves to decoding and, when the
+ * session changed, re-encoding the cookie on every request, plus the bytes on the wire.
+ * <p>
+ * Run with (a fixed heap makes the memory numbers comparable):
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-Xms2g -Xmx2g -cp %classpath com.example.demo.benchmark.SessionFootprintBenchmark"
+ * </pre>
+ */
+public class SessionFootprintBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final String[] POSITIONS = {
+            "GK", "LB", "CB1", "CB2", "RB", "LM", "CM1", "CM2", "RM", "ST1", "ST2"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : USERS;
+        System.out.printf("Users: %,d%n%n", users);
+
+        tomcatSessions(users);
+        cookieSessions(users);
+    }
+
+    private static void tomcatSessions(int users) {
+        long before = usedHeap();
+
+        StandardManager manager = new StandardManager();
+        manager.setContext(new StandardContext());
+        for (int i = 0; i < users; i++) {
+            StandardSession session = new StandardSession(manager);
+            session.setValid(true);
+            session.setCreationTime(System.currentTimeMillis());
+            session.setMaxInactiveInterval(1800);
+            session.setId(randomToken(24), false);
+            manager.add(session);
+            for (Map.Entry<String, Object> attribute : userAttributes().entrySet()) {
+                session.setAttribute(attribute.getKey(), attribute.getValue());
+            }
+        }
+
+        long retained = usedHeap() - before;
+        System.out.printf("Tomcat sessions: retained heap %,d KB total, %,d bytes per user (%d sessions live)%n",
+                retained / 1024, retained / users, manager.getActiveSessions());
+    }
+
+    private static void cookieSessions(int users) {
+        SessionCookieCodec codec = new SessionCookieCodec(new AeadCodec(List.of()));
+        ReflectionTestUtils.setField(codec, "cookieName", "CANVA_SESSION");
+        ReflectionTestUtils.setField(codec, "timeout", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(codec, "sameSite", "lax");
+
+        // Cookies as the browsers would send them back; not part of the server's footprint
+        List<Cookie[]> jars = new ArrayList<>(users);
+        long cookieBytes = 0;
+        for (int i = 0; i < users; i++) {
+            CookieHttpSession session = codec.create(null);
+            userAttributes().forEach(session::setAttribute);
+            List<Cookie> cookies = codec.write(session, 0);
+            for (Cookie cookie : cookies) {
+                cookieBytes += cookie.getName().length() + cookie.getValue().length() + 1;
+            }
+            jars.add(cookies.toArray(new Cookie[0]));
+        }
+
+        // Warm up, then time one read per user and one write for every fourth (session changed)
+        for (int i = 0; i < Math.min(users, 20_000); i++) {
+            codec.read(jars.get(i), null);
+        }
+        long readStart = System.nanoTime();
+        long writes = 0;
+        long writeNanos = 0;
+        for (int i = 0; i < users; i++) {
+            CookieHttpSession session = codec.read(jars.get(i), null);
+            if (i % 4 == 0) {
+                session.setAttribute("display_name", "Player " + i);
+                long writeStart = System.nanoTime();
+                codec.write(session, 1);
+                writeNanos += System.nanoTime() - writeStart;
+                writes++;
+            }
+        }
+        long totalNanos = System.nanoTime() - readStart;
+
+        System.out.printf("Cookie sessions: cookie %,d bytes per user%n", cookieBytes / users);
+        System.out.printf("                 read %,d ns/request, write %,d ns/changed request%n",
+                (totalNanos - writeNanos) / users, writes > 0 ? writeNanos / writes : 0);
+    }
+
+    private static Map<String, Object> userAttributes() {
+        Map<String, String> team = new LinkedHashMap<>();
+        for (String position : POSITIONS) {
+            team.put(position, "Player " + ThreadLocalRandom.current().nextInt(1000));
+        }
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        // Sizes are in line with the tokens Canva issues
+        attributes.put("access_token", randomToken(900));
+        attributes.put("refresh_token", randomToken(300));
+        attributes.put("expires_in", 14_400);
+        attributes.put("token_refresh_at", System.currentTimeMillis() + 13_800_000L);
+        attributes.put("display_name", "Supporter " + ThreadLocalRandom.current().nextInt(100_000));
+        attributes.put("team_data", team);
+        return attributes;
+    }
+
+    private static String randomToken(int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        StringBuilder token = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            token.append(alphabet.charAt(ThreadLocalRandom.current().nextInt(alphabet.length())));
+        }
+        return token.toString();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares how many concurrent slow upstream calls each threading mode can sustain.
+ * <p>
+ * A local stub answers every request after a fixed delay. For increasing concurrency levels
+ * the benchmark fires that many blocking RestClient calls at once, either on a 200-thread
+ * platform pool (Tomcat's default maximum) or on one virtual thread per call. A level counts
+ * as sustained while its p99 latency stays under twice the upstream delay.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.benchmark.ThreadModelBenchmark
+ * </pre>
+ */
+public class ThreadModelBenchmark {
+
+    private static final Duration UPSTREAM_DELAY = Duration.ofMillis(200);
+    private static final int PLATFORM_POOL_SIZE = 200;
+    private static final int[] CONCURRENCY_LEVELS = {100, 200, 400, 800, 1600, 3200, 6400};
+
+    public static void main(String[] args) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10_000);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/designs", exchange -> {
+            try {
+                Thread.sleep(UPSTREAM_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/designs";
+        try {
+            System.out.printf("Upstream delay %dms, platform pool %d threads%n%n", UPSTREAM_DELAY.toMillis(), PLATFORM_POOL_SIZE);
+            int platformMax = run("platform", url, () -> Executors.newFixedThreadPool(PLATFORM_POOL_SIZE));
+            int virtualMax = run("virtual", url, Executors::newVirtualThreadPerTaskExecutor);
+            System.out.printf("%nMax sustained concurrency: platform=%d virtual=%d%n", platformMax, virtualMax);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static int run(String mode, String url, ExecutorFactory executorFactory) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        RestClient restClient = RestClient.builder()
+                .requestFactory(new JdkClientHttpRequestFactory(httpClient))
+                .build();
+
+        // Warm up connections and JIT
+        runLevel(restClient, url, 50, executorFactory);
+
+        int maxSustained = 0;
+        for (int concurrency : CONCURRENCY_LEVELS) {
+            long[] latencies = runLevel(restClient, url, concurrency, executorFactory);
+            long wallMillis = latencies[latencies.length - 1];
+            long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+            Arrays.sort(sorted);
+            long p50 = sorted[sorted.length / 2];
+            long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+            double throughput = concurrency * 1000.0 / Math.max(1, wallMillis);
+            boolean sustained = p99 < UPSTREAM_DELAY.toMillis() * 2;
+            if (sustained) {
+                maxSustained = concurrency;
+            }
+            System.out.printf("%-8s concurrency=%5d  wall=%6dms  throughput=%8.1f req/s  p50=%5dms  p99=%5dms  %s%n",
+                    mode, concurrency, wallMillis, throughput, p50, p99, sustained ? "ok" : "saturated");
+        }
+        return maxSustained;
+    }
+
+    /**
+     * Fire all calls at once; returns per-call latencies followed by the wall-clock time
+     */
+    private static long[] runLevel(RestClient restClient, String url, int concurrency,
+                                   ExecutorFactory executorFactory) throws Exception {
+        long[] results = new long[concurrency + 1];
+        long[] releasedAt = new long[1];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+
+        try (ExecutorService executor = executorFactory.create()) {
+            for (int i = 0; i < concurrency; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    restClient.get().uri(url).retrieve().body(String.class);
+                    // Measured from release so time spent queued for a pool thread counts
+                    results[index] = (System.nanoTime() - releasedAt[0]) / 1_000_000;
+                    return null;
+                }));
+            }
+
+            long wallStart = System.nanoTime();
+            releasedAt[0] = wallStart;
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            results[concurrency] = (System.nanoTime() - wallStart) / 1_000_000;
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface ExecutorFactory {
+        ExecutorService create();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CanvaRequestContext;
+import com.example.demo.service.TokenRefreshManager;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The retry after a token refresh has to reach the wire and pass through the per-attempt
+ * interceptors again; the retry span checked by {@code CanvaTracingTest} depends on it.
+ */
+class TokenRefreshInterceptorTest {
+
+    private static final String FRESH_TOKEN = "fresh-token";
+
+    private final List<String> sentTokens = new CopyOnWriteArrayList<>();
+    private final List<String> attempts = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            sentTokens.add(authorization);
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(("Bearer " + FRESH_TOKEN).equals(authorization) ? 200 : 401, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        CanvaRequestContext.clear();
+        server.stop(0);
+    }
+
+    @Test
+    void retryIsSentAndSeenByEachPerAttemptInterceptor() {
+        ClientHttpRequestInterceptor recordAttempt = (request, body, execution) -> {
+            ClientHttpResponse response = execution.execute(request, body);
+            attempts.add(CanvaRequestContext.currentAttempt() + ":" + response.getStatusCode().value());
+            return response;
+        };
+        RestClient client = RestClient.builder()
+                .requestFactory(new SimpleClientHttpRequestFactory())
+                .requestInterceptor(new TokenRefreshInterceptor(new FixedRefresh(), new SimpleMeterRegistry(), recordAttempt))
+                .build();
+        CanvaRequestContext.set(new CanvaRequestContext(null, new MockHttpSession()));
+
+        String body = client.get()
+                .uri("http://localhost:" + server.getAddress().getPort() + "/v1/designs")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer stale-token")
+                .retrieve()
+                .body(String.class);
+
+        assertThat(body).isEqualTo("{}");
+        assertThat(sentTokens).containsExactly("Bearer stale-token", "Bearer " + FRESH_TOKEN);
+        assertThat(attempts).containsExactly(CanvaRequestContext.INITIAL_ATTEMPT + ":401", "retry:200");
+    }
+
+    private static final class FixedRefresh extends TokenRefreshManager {
+
+        FixedRefresh() {
+            super(null, null, null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public String refresh(HttpSession session, String staleAccessToken) {
+            return FRESH_TOKEN;
+        }
+    }
+}
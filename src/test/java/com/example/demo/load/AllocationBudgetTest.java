@@ -0,0 +1,215 @@
+package com.example.demo.load;
+
+import com.example.demo.simulator.CanvaSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes allocated per request by the busiest handlers, against a {@link CanvaSimulator}, so a
+ * change that makes them allocate much more fails the run. Each handler is warmed up first
+ * (JIT compilation and escape analysis change allocation a lot), then the median of
+ * {@value #SAMPLES} requests is compared with its budget in {@code allocation-budgets.properties}.
+ * <p>
+ * After an intended change, or to tighten a budget, record new ones on the reference machine
+ * with {@code mvn -Pallocation test -Dallocation.record=true}; budgets are the
+ * measured medians plus {@value #HEADROOM_PERCENT}%.
+ * <p>
+ * Tagged {@code allocation} and excluded from the default build, since budgets only hold on
+ * the machine they were recorded on; run with {@code mvn -Pallocation test}.
+ */
+@Tag("allocation")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:allocation;DB_CLOSE_DELAY=-1",
+        "canva.warmup.enabled=false"
+})
+@Import(AllocationBudgetTest.MeterConfiguration.class)
+class AllocationBudgetTest {
+
+    private static final int WARMUP = 300;
+    private static final int SAMPLES = 100;
+    private static final int HEADROOM_PERCENT = 25;
+    private static final String BUDGETS = "allocation-budgets.properties";
+    private static final Path RECORDED_BUDGETS = Path.of("src/test/resources", BUDGETS);
+    private static final boolean RECORD = Boolean.getBoolean("allocation.record");
+
+    private static final CanvaSimulator canva = startSimulator();
+    private static final Map<String, Long> measured = new TreeMap<>();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AllocationMeter meter;
+
+    private VirtualUser user;
+
+    @DynamicPropertySource
+    static void canvaProperties(DynamicPropertyRegistry registry) {
+        registry.add("canva.api.base-url", canva::baseUrl);
+        registry.add("canva.oauth.token-url", canva::tokenUrl);
+        registry.add("canva.oauth.authorization-url", () -> canva.baseUrl() + "/oauth/authorize");
+    }
+
+    @BeforeEach
+    void signIn() {
+        HttpClient http = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+        user = new VirtualUser(http, "http://localhost:" + port, 0);
+        assertThat(user.login()).as("signed in against the simulator").isTrue();
+    }
+
+    @AfterAll
+    static void stopSimulator() throws IOException {
+        canva.close();
+        if (RECORD && !measured.isEmpty()) {
+            writeBudgets();
+        }
+    }
+
+    @Test
+    void authorize() {
+        assertWithinBudget("authorize", () -> user.get("authorize", "/oauth/authorize", r -> r.status() == 302));
+    }
+
+    @Test
+    void createAutofill() {
+        String templateId = canva.brandTemplateIds().get(0);
+        assertWithinBudget("createAutofill", () -> {
+            // A new line-up each time, so the job is submitted rather than replayed
+            saveTeam();
+            user.postJson("create-autofill", "/soccer/create-autofill", Map.of("brandTemplateId", templateId),
+                    VirtualUser.Response::succeeded);
+        });
+    }
+
+    @Test
+    void getAutofillStatus() {
+        saveTeam();
+        VirtualUser.Response created = user.postJson("create-autofill", "/soccer/create-autofill",
+                Map.of("brandTemplateId", canva.brandTemplateIds().get(0)), VirtualUser.Response::succeeded);
+        assertThat(created.json().get("job")).as("autofill job").isInstanceOf(Map.class);
+        Object jobId = ((Map<?, ?>) created.json().get("job")).get("id");
+        assertWithinBudget("getAutofillStatus", () -> user.get("autofill-status", "/soccer/autofill-status/" + jobId));
+    }
+
+    @Test
+    void testListDesigns() {
+        assertWithinBudget("testListDesigns", () -> user.postForm("list-designs", "/api/test/designs", Map.of()));
+    }
+
+    private void saveTeam() {
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("teamName", "Budget FC");
+        for (String position : new String[] {"goalkeeper", "centerBack1", "centerBack2", "leftBack", "rightBack",
+                "midfielder1", "midfielder2", "midfielder3", "leftWing", "rightWing", "striker"}) {
+            form.put(position, "Player " + ThreadLocalRandom.current().nextInt(1, 1000));
+        }
+        user.postForm("save-team", "/soccer/team", form);
+    }
+
+    private void assertWithinBudget(String handler, Runnable request) {
+        for (int i = 0; i < WARMUP; i++) {
+            request.run();
+        }
+        meter.reset();
+        for (int i = 0; i < SAMPLES; i++) {
+            request.run();
+        }
+        long median = meter.median(handler);
+        assertThat(median).as("requests served by %s", handler).isPositive();
+        measured.put(handler, median);
+        if (RECORD) {
+            return;
+        }
+        Long budget = budgets().get(handler);
+        assertThat(budget).as("allocation budget for %s in %s", handler, BUDGETS).isNotNull();
+        assertThat(median)
+                .as("bytes allocated per %s request (budget %,d); if the increase is intended, "
+                        + "record budgets again with -Dallocation.record=true", handler, budget)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    private static Map<String, Long> budgets() {
+        Properties properties = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getClassLoader().getResourceAsStream(BUDGETS)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, Long> budgets = new TreeMap<>();
+        properties.forEach((handler, bytes) -> budgets.put((String) handler, Long.parseLong(((String) bytes).trim())));
+        return budgets;
+    }
+
+    private static void writeBudgets() throws IOException {
+        Map<String, Long> budgets = budgets();
+        measured.forEach((handler, median) ->
+                budgets.put(handler, (median * (100 + HEADROOM_PERCENT) / 100 + 1023) / 1024 * 1024));
+        Files.createDirectories(RECORDED_BUDGETS.getParent());
+        try (Writer out = Files.newBufferedWriter(RECORDED_BUDGETS, StandardCharsets.UTF_8)) {
+            out.write("# Bytes allocated on the request thread per request, by handler method: the median after\n");
+            out.write("# warm-up plus " + HEADROOM_PERCENT + "%. Written by AllocationBudgetTest with -Dallocation.record=true.\n");
+            out.write("# Java " + System.getProperty("java.version") + ", " + System.getProperty("os.arch") + "\n");
+            for (Map.Entry<String, Long> budget : budgets.entrySet()) {
+                out.write(budget.getKey() + "=" + budget.getValue() + "\n");
+            }
+        }
+        System.out.println("Allocation budgets written to " + RECORDED_BUDGETS.toAbsolutePath());
+    }
+
+    private static CanvaSimulator startSimulator() {
+        try {
+            // Jobs are finished by the first status poll, so every status response has the same shape
+            return CanvaSimulator.start().jobDuration(Duration.ZERO);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class MeterConfiguration {
+
+        @Bean
+        AllocationMeter allocationMeter() {
+            return new AllocationMeter();
+        }
+
+        @Bean
+        FilterRegistrationBean<AllocationMeter> allocationMeterRegistration(AllocationMeter allocationMeter) {
+            FilterRegistrationBean<AllocationMeter> registration = new FilterRegistrationBean<>(allocationMeter);
+            // Outermost, so every other filter's allocations count too
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.load;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servlet filter that measures the bytes allocated by the request thread while a request
+ * passes through the filter chain and the controller, and files the figure under the name of
+ * the handler method that served it ({@code authorize}, {@code createAutofill}, ...).
+ * <p>
+ * Work handed to other threads (the HTTP client's I/O, fan-out tasks, warm-up) is not
+ * counted; the figure is what one request costs on the thread that serves it.
+ */
+final class AllocationMeter implements Filter {
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Map<String, List<Long>> samples = new ConcurrentHashMap<>();
+
+    AllocationMeter() {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not count allocated bytes per thread");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        long before = threads.getCurrentThreadAllocatedBytes();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+                List<Long> handlerSamples = samples.computeIfAbsent(handler.getMethod().getName(), name -> new ArrayList<>());
+                synchronized (handlerSamples) {
+                    handlerSamples.add(allocated);
+                }
+            }
+        }
+    }
+
+    void reset() {
+        samples.clear();
+    }
+
+    /**
+     * Median bytes allocated per request by the handler since the last {@link #reset}, or -1
+     * if it served none
+     */
+    long median(String handler) {
+        List<Long> handlerSamples = samples.get(handler);
+        if (handlerSamples == null) {
+            return -1;
+        }
+        List<Long> sorted;
+        synchronized (handlerSamples) {
+            sorted = new ArrayList<>(handlerSamples);
+        }
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.load;
+
+import com.example.demo.config.LocalSpanExporter;
+import com.example.demo.config.LocalSpanExporter.ExportedSpan;
+import com.example.demo.simulator.CanvaSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks what {@code /api/admin/traces} is there to show: a request to the application is one
+ * trace holding its server span and a client span per upstream Canva call, and each client span
+ * says which attempt it was.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:tracing;DB_CLOSE_DELAY=-1",
+        "management.tracing.sampling.probability=1.0",
+        "canva.hedging.enabled=false",
+        "canva.warmup.enabled=false"
+})
+class CanvaTracingTest {
+
+    private static final CanvaSimulator canva = startSimulator();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LocalSpanExporter spans;
+
+    private VirtualUser user;
+
+    @DynamicPropertySource
+    static void canvaProperties(DynamicPropertyRegistry registry) {
+        registry.add("canva.api.base-url", canva::baseUrl);
+        registry.add("canva.oauth.token-url", canva::tokenUrl);
+        registry.add("canva.oauth.authorization-url", () -> canva.baseUrl() + "/oauth/authorize");
+    }
+
+    @BeforeEach
+    void signIn() {
+        HttpClient http = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+        user = new VirtualUser(http, "http://localhost:" + port, 0);
+        assertThat(user.login()).as("signed in against the simulator").isTrue();
+        spans.clear();
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        canva.close();
+    }
+
+    @Test
+    void upstreamCallIsAClientSpanInTheRequestsTrace() {
+        assertThat(user.postForm("list-designs", "/api/test/designs", Map.of()).succeeded()).isTrue();
+
+        List<ExportedSpan> calls = upstreamSpans("listDesigns");
+        assertThat(calls).hasSize(1);
+        ExportedSpan call = calls.get(0);
+        assertThat(call.tags()).containsEntry("attempt", "initial").containsEntry("status", "200");
+        assertThat(spans.trace(call.traceId()))
+                .as("server span of the same request")
+                .anySatisfy(span -> assertThat(span.kind()).isEqualTo("SERVER"));
+    }
+
+    @Test
+    void retryAfterTokenRefreshIsTaggedAsRetry() {
+        canva.expireTokens();
+
+        assertThat(user.postForm("list-designs", "/api/test/designs", Map.of()).succeeded()).isTrue();
+
+        List<ExportedSpan> calls = upstreamSpans("listDesigns");
+        assertThat(calls).extracting(span -> span.tags().get("attempt"))
+                .containsExactlyInAnyOrder("initial", "retry");
+        assertThat(calls).extracting(span -> span.tags().get("status"))
+                .containsExactlyInAnyOrder("401", "200");
+        assertThat(calls).extracting(ExportedSpan::traceId).containsOnly(calls.get(0).traceId());
+    }
+
+    private List<ExportedSpan> upstreamSpans(String operation) {
+        return spans.recent(Integer.MAX_VALUE).stream()
+                .filter(span -> operation.equals(span.tags().get("operation")))
+                .toList();
+    }
+
+    private static CanvaSimulator startSimulator() {
+        try {
+            return CanvaSimulator.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+
+/**
+ * Heap, allocation and GC figures of this JVM over one load phase. The application and the
+ * load driver share the JVM, so allocation includes the driver's own (small) share.
+ *
+ * @param heapUsedBeforeMb heap in use when the phase started
+ * @param heapUsedAfterMb  heap in use when it ended
+ * @param heapPeakMb       highest heap use during the phase (sum of the pools' peaks)
+ * @param allocatedMb      bytes allocated by all threads during the phase, or -1 if unknown
+ * @param allocationRateMbPerSecond {@code allocatedMb} per second of the phase
+ * @param gcCount          collections during the phase
+ * @param gcTimeMillis     time spent collecting (pauses and concurrent phases)
+ * @param gcTimeShare      {@code gcTimeMillis} as a share of the phase duration
+ * @param peakThreads      most live threads during the phase
+ */
+record JvmUsage(double heapUsedBeforeMb, double heapUsedAfterMb, double heapPeakMb, double allocatedMb,
+                double allocationRateMbPerSecond, long gcCount, long gcTimeMillis, double gcTimeShare,
+                int peakThreads) {
+
+    private static final double MB = 1024 * 1024;
+
+    /**
+     * Counters at the start of a phase; resets the heap pools' and thread peaks
+     */
+    static Snapshot start() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        return Snapshot.take();
+    }
+
+    static JvmUsage since(Snapshot before, Duration elapsed) {
+        Snapshot after = Snapshot.take();
+        long heapPeak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                heapPeak += pool.getPeakUsage().getUsed();
+            }
+        }
+        double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+        double allocated = before.allocatedBytes() < 0 ? -1 : (after.allocatedBytes() - before.allocatedBytes()) / MB;
+        long gcTime = after.gcTimeMillis() - before.gcTimeMillis();
+        return new JvmUsage(before.heapUsed() / MB, after.heapUsed() / MB, heapPeak / MB, allocated,
+                allocated < 0 ? -1 : allocated / seconds, after.gcCount() - before.gcCount(), gcTime,
+                gcTime / (seconds * 1000), ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+
+    /**
+     * @param allocatedBytes bytes allocated by all threads so far, or -1 if the JVM does not tell
+     */
+    record Snapshot(long heapUsed, long allocatedBytes, long gcCount, long gcTimeMillis) {
+
+        static Snapshot take() {
+            long gcCount = 0;
+            long gcTime = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(gc.getCollectionCount(), 0);
+                gcTime += Math.max(gc.getCollectionTime(), 0);
+            }
+            long allocated = -1;
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                allocated = threads.getTotalThreadAllocatedBytes();
+            }
+            return new Snapshot(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), allocated,
+                    gcCount, gcTime);
+        }
+    }
+}
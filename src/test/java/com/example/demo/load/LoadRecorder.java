@@ -0,0 +1,145 @@
+package com.example.demo.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the timings of one load phase: every request by scenario and step, and every
+ * scenario iteration as a whole, with errors counted by HTTP status (0 for requests that got
+ * no response). {@link #finish} turns them into a {@link PhaseReport}.
+ */
+final class LoadRecorder {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final String ITERATION = "(iteration)";
+
+    private final String phase;
+    private final int users;
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final long startNanos = System.nanoTime();
+    private final JvmUsage.Snapshot jvmBefore = JvmUsage.start();
+
+    LoadRecorder(String phase, int users) {
+        this.phase = phase;
+        this.users = users;
+    }
+
+    void record(String scenario, String step, long nanos, boolean success, int status) {
+        timer(scenario, step).record(nanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            Counter.builder("load.errors")
+                    .tags("scenario", scenario, "step", step, "status", Integer.toString(status))
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    /**
+     * One run of a scenario, from its first request to its last (polling waits included)
+     */
+    void iteration(String scenario, long nanos, boolean success) {
+        record(scenario, ITERATION, nanos, success, -1);
+    }
+
+    private Timer timer(String scenario, String step) {
+        return Timer.builder("load.requests")
+                .tags("scenario", scenario, "step", step)
+                .publishPercentiles(PERCENTILES)
+                // Percentiles over the whole phase rather than a rolling window
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    PhaseReport finish() {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        JvmUsage jvm = JvmUsage.since(jvmBefore, elapsed);
+        double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+
+        Map<String, Map<String, StepReport>> steps = new TreeMap<>();
+        for (Timer timer : registry.find("load.requests").timers()) {
+            String scenario = timer.getId().getTag("scenario");
+            String step = timer.getId().getTag("step");
+            Map<String, Long> errors = errors(scenario, step);
+            steps.computeIfAbsent(scenario, s -> new TreeMap<>())
+                    .put(step, StepReport.of(step, timer.takeSnapshot(), errors, seconds));
+        }
+
+        List<ScenarioReport> scenarios = new ArrayList<>();
+        steps.forEach((scenario, byStep) -> {
+            StepReport iterations = byStep.remove(ITERATION);
+            List<StepReport> requests = new ArrayList<>(byStep.values());
+            requests.sort(Comparator.comparing(StepReport::step));
+            scenarios.add(new ScenarioReport(scenario, iterations, requests));
+        });
+        return new PhaseReport(phase, users, elapsed.toMillis() / 1000.0, scenarios, jvm);
+    }
+
+    private Map<String, Long> errors(String scenario, String step) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        for (Counter counter : registry.find("load.errors").tag("scenario", scenario).tag("step", step).counters()) {
+            byStatus.merge(counter.getId().getTag("status"), (long) counter.count(), Long::sum);
+        }
+        return byStatus;
+    }
+
+    /**
+     * @param durationSeconds how long the phase ran
+     */
+    record PhaseReport(String phase, int users, double durationSeconds, List<ScenarioReport> scenarios,
+                       JvmUsage jvm) {
+
+        long requests() {
+            return scenarios.stream().flatMap(s -> s.requests().stream()).mapToLong(StepReport::count).sum();
+        }
+
+        long errors() {
+            return scenarios.stream().flatMap(s -> s.requests().stream()).mapToLong(StepReport::errorCount).sum();
+        }
+
+        double errorRate() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) errors() / requests;
+        }
+    }
+
+    /**
+     * @param iterations whole runs of the scenario; null when none completed
+     * @param requests   the scenario's requests by step
+     */
+    record ScenarioReport(String scenario, StepReport iterations, List<StepReport> requests) {
+    }
+
+    /**
+     * Latencies are in milliseconds; {@code errors} counts failures by HTTP status
+     */
+    record StepReport(String step, long count, double perSecond, long errorCount, double errorRate,
+                      double p50, double p95, double p99, double max, double mean, Map<String, Long> errors) {
+
+        static StepReport of(String step, HistogramSnapshot snapshot, Map<String, Long> errors, double seconds) {
+            Map<Double, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+            }
+            long errorCount = errors.values().stream().mapToLong(Long::longValue).sum();
+            long count = snapshot.count();
+            return new StepReport(step, count, count / seconds, errorCount, count == 0 ? 0 : (double) errorCount / count,
+                    percentiles.getOrDefault(0.5, 0.0), percentiles.getOrDefault(0.95, 0.0),
+                    percentiles.getOrDefault(0.99, 0.0), snapshot.max(TimeUnit.MILLISECONDS),
+                    snapshot.mean(TimeUnit.MILLISECONDS), errors);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.load;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Plain-text summary of a load run: one block per phase with a line per scenario and step,
+ * followed by the phase's heap and GC figures
+ */
+final class LoadReportPrinter {
+
+    private static final String ROW = "  %-22s %-22s %8d %9.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f%n";
+
+    private LoadReportPrinter() {
+    }
+
+    static void print(List<LoadRecorder.PhaseReport> phases, PrintStream out) {
+        for (LoadRecorder.PhaseReport phase : phases) {
+            out.printf("%n== %s: %d users, %.0fs, %d requests, %.2f%% errors%n", phase.phase(), phase.users(),
+                    phase.durationSeconds(), phase.requests(), phase.errorRate() * 100);
+            out.printf("  %-22s %-22s %8s %9s %8s %9s %9s %9s %9s%n",
+                    "scenario", "step", "count", "per sec", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            for (LoadRecorder.ScenarioReport scenario : phase.scenarios()) {
+                if (scenario.iterations() != null) {
+                    row(out, scenario.scenario(), "(iteration)", scenario.iterations());
+                }
+                for (LoadRecorder.StepReport step : scenario.requests()) {
+                    row(out, scenario.scenario(), step.step(), step);
+                    if (!step.errors().isEmpty()) {
+                        out.printf("  %-22s %-22s errors by status %s%n", "", "", step.errors());
+                    }
+                }
+            }
+            JvmUsage jvm = phase.jvm();
+            out.printf("  heap %.0f -> %.0f MB (peak %.0f MB), allocated %.0f MB (%.1f MB/s), "
+                            + "GC %d collections / %d ms (%.2f%% of time), peak threads %d%n",
+                    jvm.heapUsedBeforeMb(), jvm.heapUsedAfterMb(), jvm.heapPeakMb(), jvm.allocatedMb(),
+                    jvm.allocationRateMbPerSecond(), jvm.gcCount(), jvm.gcTimeMillis(), jvm.gcTimeShare() * 100,
+                    jvm.peakThreads());
+        }
+    }
+
+    private static void row(PrintStream out, String scenario, String step, LoadRecorder.StepReport report) {
+        out.printf(ROW, scenario, step, report.count(), report.perSecond(), report.errorRate() * 100,
+                report.p50(), report.p95(), report.p99(), report.max());
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.demo.load;
+
+import com.example.demo.simulator.CanvaSimulator;
+import com.example.demo.simulator.LatencyDistribution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Matchday load against the whole application, with Canva replaced by a {@link CanvaSimulator}
+ * that answers with realistic latency. Virtual users sign in through the OAuth flow, then run
+ * each {@link Scenario} on its own (so heap and GC figures can be told apart per scenario) and
+ * finally all of them in their matchday proportions.
+ * <p>
+ * Excluded from the normal build; run with {@code mvn -Pload test}. Settings are system
+ * properties:
+ * <ul>
+ *   <li>{@code load.users} (50): concurrent virtual users</li>
+ *   <li>{@code load.phase-duration} (20s): length of each single-scenario phase</li>
+ *   <li>{@code load.mix-duration} (60s): length of the mixed phase</li>
+ *   <li>{@code load.think-time} (300ms): mean pause between a user's scenarios</li>
+ *   <li>{@code load.upstream-median} / {@code load.upstream-p99} (60ms / 600ms): simulated Canva latency</li>
+ *   <li>{@code load.job-duration} (2s): time a simulated autofill or upload job takes</li>
+ *   <li>{@code load.max-error-rate} (0.01): highest share of failed requests a phase may have</li>
+ *   <li>{@code load.report} (target/load-report.json): where the JSON report is written</li>
+ * </ul>
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+        "logging.level.com.example.demo.controller=WARN"
+})
+class LoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final Duration PHASE_DURATION = duration("load.phase-duration", "20s");
+    private static final Duration MIX_DURATION = duration("load.mix-duration", "60s");
+    private static final Duration THINK_TIME = duration("load.think-time", "300ms");
+    private static final Duration UPSTREAM_MEDIAN = duration("load.upstream-median", "60ms");
+    private static final Duration UPSTREAM_P99 = duration("load.upstream-p99", "600ms");
+    private static final Duration JOB_DURATION = duration("load.job-duration", "2s");
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+    private static final Path REPORT = Path.of(System.getProperty("load.report", "target/load-report.json"));
+
+    private static final CanvaSimulator canva = startSimulator();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void canvaProperties(DynamicPropertyRegistry registry) {
+        registry.add("canva.api.base-url", canva::baseUrl);
+        registry.add("canva.oauth.token-url", canva::tokenUrl);
+        // Never requested: the virtual users answer the redirect to Canva themselves
+        registry.add("canva.oauth.authorization-url", () -> canva.baseUrl() + "/oauth/authorize");
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        canva.close();
+    }
+
+    @Test
+    void matchday() throws Exception {
+        Scenario.Fixture fixture = new Scenario.Fixture(canva.brandTemplateIds(), crest(),
+                Duration.ofMillis(250), JOB_DURATION.multipliedBy(10));
+        HttpClient http = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<VirtualUser> users = signIn(http);
+        List<LoadRecorder.PhaseReport> phases = new ArrayList<>();
+        for (Scenario scenario : Scenario.values()) {
+            phases.add(run(scenario.label(), List.of(scenario), users, fixture, PHASE_DURATION));
+        }
+        phases.add(run("mixed", List.of(Scenario.values()), users, fixture, MIX_DURATION));
+
+        LoadReportPrinter.print(phases, System.out);
+        writeReport(phases);
+
+        for (LoadRecorder.PhaseReport phase : phases) {
+            assertThat(phase.requests()).as("requests in phase %s", phase.phase()).isPositive();
+            assertThat(phase.errorRate()).as("error rate in phase %s", phase.phase()).isLessThanOrEqualTo(MAX_ERROR_RATE);
+        }
+    }
+
+    private List<VirtualUser> signIn(HttpClient http) throws Exception {
+        List<VirtualUser> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new VirtualUser(http, "http://localhost:" + port, i));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> logins = new ArrayList<>();
+            for (VirtualUser user : users) {
+                logins.add(executor.submit(user::login));
+            }
+            for (Future<Boolean> login : logins) {
+                assertThat(login.get()).as("virtual user signed in").isTrue();
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Every user runs scenarios picked from {@code mix}, with think time in between, until the
+     * phase is over
+     */
+    private LoadRecorder.PhaseReport run(String phase, List<Scenario> mix, List<VirtualUser> users,
+                                         Scenario.Fixture fixture, Duration duration) {
+        LoadRecorder recorder = new LoadRecorder(phase, users.size());
+        long end = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (VirtualUser user : users) {
+                user.recordTo(recorder);
+                executor.submit(() -> {
+                    // Spread the users' first requests over one think time
+                    think(ThreadLocalRandom.current().nextLong(THINK_TIME.toMillis() + 1));
+                    while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                        Scenario scenario = Scenario.pick(mix);
+                        user.scenario(scenario.label());
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = scenario.run(user, fixture);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (RuntimeException e) {
+                            success = false;
+                        }
+                        recorder.iteration(scenario.label(), System.nanoTime() - start, success);
+                        think(THINK_TIME.toMillis() / 2 + ThreadLocalRandom.current().nextLong(THINK_TIME.toMillis() + 1));
+                    }
+                });
+            }
+        }
+        users.forEach(user -> user.recordTo(null));
+        return recorder.finish();
+    }
+
+    private static void think(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeReport(List<LoadRecorder.PhaseReport> phases) throws IOException {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("users", USERS);
+        settings.put("phaseDuration", PHASE_DURATION.toString());
+        settings.put("mixDuration", MIX_DURATION.toString());
+        settings.put("thinkTime", THINK_TIME.toString());
+        settings.put("upstreamMedian", UPSTREAM_MEDIAN.toString());
+        settings.put("upstreamP99", UPSTREAM_P99.toString());
+        settings.put("jobDuration", JOB_DURATION.toString());
+        settings.put("javaVersion", System.getProperty("java.version"));
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        settings.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("settings", settings);
+        report.put("phases", phases);
+        if (REPORT.getParent() != null) {
+            Files.createDirectories(REPORT.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(REPORT.toFile(), report);
+        System.out.println("Load report written to " + REPORT.toAbsolutePath());
+    }
+
+    /** A small PNG-sized payload; the simulator does not decode uploads */
+    private static byte[] crest() {
+        byte[] bytes = new byte[48 * 1024];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static CanvaSimulator startSimulator() {
+        try {
+            CanvaSimulator simulator = CanvaSimulator.start().jobDuration(JOB_DURATION);
+            simulator.faults().latency(LatencyDistribution.logNormal(UPSTREAM_MEDIAN, UPSTREAM_P99));
+            return simulator;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.load;
+
+import com.example.demo.simulator.CanvaSimulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races the OAuth flow through the running application: several tabs of one session logging in
+ * at once, a redirect replayed concurrently, redirects arriving around the state TTL, and logout
+ * during a login. The simulator only accepts an authorization code once and only with the
+ * verifier whose challenge it was issued for, so a verifier that is lost, reused or paired
+ * with the wrong state shows up as a failed token exchange.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:oauth-stress;DB_CLOSE_DELAY=-1",
+        "canva.oauth.state-ttl=2s",
+        "canva.warmup.enabled=false",
+        "logging.level.com.example.demo.controller=WARN"
+})
+class OAuthFlowStressTest {
+
+    private static final Duration STATE_TTL = Duration.ofSeconds(2);
+    private static final int USERS = 8;
+
+    private static final CanvaSimulator canva = startSimulator();
+
+    @LocalServerPort
+    private int port;
+
+    private final List<VirtualUser> users = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void canvaProperties(DynamicPropertyRegistry registry) {
+        registry.add("canva.api.base-url", canva::baseUrl);
+        registry.add("canva.oauth.token-url", canva::tokenUrl);
+        registry.add("canva.oauth.authorization-url", () -> canva.baseUrl() + "/oauth/authorize");
+    }
+
+    @BeforeEach
+    void signIn() {
+        HttpClient http = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+        for (int i = 0; i < USERS; i++) {
+            VirtualUser user = new VirtualUser(http, "http://localhost:" + port, i);
+            // Every tab of the user then shares this session
+            assertThat(user.login()).as("user %d signed in", i).isTrue();
+            users.add(user);
+        }
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        canva.close();
+    }
+
+    @Test
+    void concurrentTabsEachCompleteTheirOwnLogin() throws Exception {
+        int tabs = 4;
+        List<Callable<Outcome>> logins = new ArrayList<>();
+        for (VirtualUser user : users) {
+            for (int tab = 0; tab < tabs; tab++) {
+                logins.add(() -> redirect(user, authorize(user), Duration.ZERO));
+            }
+        }
+
+        for (Outcome outcome : race(logins)) {
+            assertThat(outcome).as("login in one of several tabs").isEqualTo(Outcome.CONNECTED);
+        }
+    }
+
+    @Test
+    void replayedRedirectSucceedsOnce() throws Exception {
+        int replays = 4;
+        for (VirtualUser user : users) {
+            Login login = authorize(user);
+            List<Callable<Outcome>> redirects = new ArrayList<>();
+            for (int i = 0; i < replays; i++) {
+                redirects.add(() -> redirect(user, login, Duration.ZERO));
+            }
+
+            List<Outcome> outcomes = race(redirects);
+            assertThat(outcomes).as("outcomes of one redirect sent %d times", replays)
+                    .containsOnlyOnce(Outcome.CONNECTED)
+                    .doesNotContain(Outcome.NO_RESPONSE);
+        }
+    }
+
+    @Test
+    void redirectsAroundTheStateTtlNeverUseAnotherLoginsVerifier() throws Exception {
+        int tabs = 3;
+        List<Login> started = new ArrayList<>();
+        List<VirtualUser> owners = new ArrayList<>();
+        for (VirtualUser user : users) {
+            for (int tab = 0; tab < tabs; tab++) {
+                started.add(authorize(user));
+                owners.add(user);
+            }
+        }
+        List<Callable<Outcome>> redirects = new ArrayList<>();
+        for (int i = 0; i < started.size(); i++) {
+            Login login = started.get(i);
+            VirtualUser user = owners.get(i);
+            // Up to twice the TTL late, so some states expire before, during or after their redirect
+            Duration delay = Duration.ofMillis(ThreadLocalRandom.current().nextLong(STATE_TTL.toMillis() * 2));
+            redirects.add(() -> redirect(user, login, delay));
+        }
+
+        List<Outcome> outcomes = race(redirects);
+        assertThat(outcomes).as("late redirects either connect or report an expired login")
+                .doesNotContain(Outcome.EXCHANGE_FAILED, Outcome.NO_RESPONSE, Outcome.OTHER);
+        assertThat(outcomes).as("redirects well within the TTL").contains(Outcome.CONNECTED);
+    }
+
+    @Test
+    void logoutDuringLoginLeavesTheSessionUsable() throws Exception {
+        for (VirtualUser user : users) {
+            Login login = authorize(user);
+            race(List.of(
+                    () -> redirect(user, login, Duration.ZERO),
+                    () -> user.get("logout", "/oauth/logout").ok() ? Outcome.OTHER : Outcome.NO_RESPONSE));
+            // Whichever won, the browser can sign in again
+            assertThat(redirect(user, authorize(user), Duration.ZERO)).as("login after the race")
+                    .isEqualTo(Outcome.CONNECTED);
+        }
+    }
+
+    private enum Outcome { CONNECTED, EXPIRED, EXCHANGE_FAILED, NO_RESPONSE, OTHER }
+
+    /**
+     * A started login: the state of the authorize redirect, and the code Canva issued for its
+     * challenge
+     */
+    private record Login(String state, String code) {
+    }
+
+    private static Login authorize(VirtualUser user) {
+        VirtualUser.Response authorize = user.get("authorize", "/oauth/authorize", r -> r.status() == 302);
+        String state = authorize.queryParameter("Location", "state");
+        String challenge = authorize.queryParameter("Location", "code_challenge");
+        assertThat(state).as("state in the authorize redirect").isNotNull();
+        assertThat(challenge).as("code_challenge in the authorize redirect").isNotNull();
+        return new Login(state, canva.authorize(challenge));
+    }
+
+    private static Outcome redirect(VirtualUser user, Login login, Duration delay) throws InterruptedException {
+        Thread.sleep(delay.toMillis());
+        VirtualUser.Response response = user.get("redirect",
+                "/oauth/redirect?code=" + login.code() + "&state=" + login.state(), VirtualUser.Response::ok);
+        if (response.status() == 0) {
+            return Outcome.NO_RESPONSE;
+        }
+        if (response.body().contains("Connected to Canva")) {
+            return Outcome.CONNECTED;
+        }
+        if (response.body().contains(">session_expired<")) {
+            return Outcome.EXPIRED;
+        }
+        return response.body().contains(">token_exchange_failed<") ? Outcome.EXCHANGE_FAILED : Outcome.OTHER;
+    }
+
+    /**
+     * Run the tasks on virtual threads released together, and collect their results in order
+     */
+    private static <T> List<T> race(List<Callable<T>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static CanvaSimulator startSimulator() {
+        try {
+            return CanvaSimulator.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.load;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What a signed-in coach does, in the proportions of a matchday: mostly editing the team,
+ * rendering it into a template and browsing designs, with the odd login and image upload.
+ * Each scenario is one iteration of the virtual user's loop; it returns whether every request
+ * in it succeeded.
+ */
+enum Scenario {
+
+    /** Connect to Canva again: authorize, then the OAuth redirect with a new code */
+    OAUTH_LOGIN(1) {
+        @Override
+        boolean run(VirtualUser user, Fixture fixture) {
+            return user.login();
+        }
+    },
+
+    /** Save the team form */
+    SAVE_TEAM(3) {
+        @Override
+        boolean run(VirtualUser user, Fixture fixture) {
+            return saveTeam(user);
+        }
+    },
+
+    /**
+     * Edit the team, render it into a brand template and poll the job until it is done, as
+     * the formations page does
+     */
+    AUTOFILL(2) {
+        @Override
+        boolean run(VirtualUser user, Fixture fixture) throws InterruptedException {
+            // A new line-up each time: an unchanged template and roster would be replayed, not rendered
+            if (!saveTeam(user)) {
+                return false;
+            }
+            String templateId = fixture.brandTemplateIds().get(
+                    ThreadLocalRandom.current().nextInt(fixture.brandTemplateIds().size()));
+            VirtualUser.Response created = user.postJson("create-autofill", "/soccer/create-autofill",
+                    Map.of("brandTemplateId", templateId), VirtualUser.Response::succeeded);
+            if (!created.succeeded() || !(created.json().get("job") instanceof Map<?, ?> job)) {
+                return false;
+            }
+            long deadline = System.nanoTime() + fixture.jobTimeout().toNanos();
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(fixture.pollInterval().toMillis());
+                VirtualUser.Response status = user.get("autofill-status", "/soccer/autofill-status/" + job.get("id"),
+                        VirtualUser.Response::succeeded);
+                if (!status.succeeded()) {
+                    return false;
+                }
+                if (status.json().get("job") instanceof Map<?, ?> polled && !"in_progress".equals(polled.get("status"))) {
+                    return "success".equals(polled.get("status"));
+                }
+            }
+            return false;
+        }
+    },
+
+    /** Browse designs on the API test page */
+    LIST_DESIGNS(3) {
+        @Override
+        boolean run(VirtualUser user, Fixture fixture) {
+            return user.postForm("list-designs", "/api/test/designs", Map.of(), VirtualUser.Response::succeeded)
+                    .succeeded();
+        }
+    },
+
+    /** Upload a crest image and check its upload job once */
+    ASSET_UPLOAD(1) {
+        @Override
+        boolean run(VirtualUser user, Fixture fixture) {
+            VirtualUser.Response upload = user.postMultipart("asset-upload", "/api/test/asset-upload", "file",
+                    "crest-" + user.id() + ".png", fixture.asset(), VirtualUser.Response::succeeded);
+            if (!upload.succeeded() || !(upload.json().get("job") instanceof Map<?, ?> job)) {
+                return false;
+            }
+            return user.get("asset-upload-status", "/api/test/asset-upload/" + job.get("id"),
+                    VirtualUser.Response::succeeded).succeeded();
+        }
+    };
+
+    private static final List<String> POSITIONS = List.of("goalkeeper", "centerBack1", "centerBack2", "leftBack",
+            "rightBack", "midfielder1", "midfielder2", "midfielder3", "leftWing", "rightWing", "striker");
+
+    private final int weight;
+
+    Scenario(int weight) {
+        this.weight = weight;
+    }
+
+    int weight() {
+        return weight;
+    }
+
+    String label() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    abstract boolean run(VirtualUser user, Fixture fixture) throws InterruptedException;
+
+    private static boolean saveTeam(VirtualUser user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("teamName", "Load FC " + user.id());
+        for (String position : POSITIONS) {
+            form.put(position, "Player " + random.nextInt(1, 100));
+        }
+        // The form posts back to a redirect to the team page
+        return user.postForm("save-team", "/soccer/team", form, response -> response.status() == 302)
+                .status() == 302;
+    }
+
+    /**
+     * A scenario picked at random in proportion to the weights
+     */
+    static Scenario pick(List<Scenario> mix) {
+        int total = mix.stream().mapToInt(Scenario::weight).sum();
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Scenario scenario : mix) {
+            roll -= scenario.weight();
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    /**
+     * Upstream data the scenarios need
+     *
+     * @param asset bytes uploaded by {@link #ASSET_UPLOAD}
+     */
+    record Fixture(List<String> brandTemplateIds, byte[] asset, Duration pollInterval, Duration jobTimeout) {
+    }
+}
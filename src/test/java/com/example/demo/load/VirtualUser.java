@@ -0,0 +1,215 @@
+package com.example.demo.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * One simulated coach: a browser session (the session cookie) against the application under
+ * test. Every request is timed and recorded in the current {@link LoadRecorder} under the
+ * scenario being run and the given step name.
+ * <p>
+ * Redirects are not followed, so the OAuth flow can be driven by hand: the authorization
+ * redirect to Canva is answered as Canva would, by calling {@code /oauth/redirect} with a
+ * code and the state from the redirect URL.
+ */
+final class VirtualUser {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final AtomicLong codes = new AtomicLong();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final int id;
+    private volatile String sessionCookie;
+    private volatile LoadRecorder recorder;
+    private volatile String scenario = "setup";
+
+    VirtualUser(HttpClient http, String baseUrl, int id) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.id = id;
+    }
+
+    int id() {
+        return id;
+    }
+
+    /**
+     * Record the following requests in {@code recorder}, or nowhere when it is null
+     */
+    void recordTo(LoadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    void scenario(String scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Sign in with Canva: {@code /oauth/authorize}, then the redirect back with a fresh code
+     */
+    boolean login() {
+        Response authorize = get("authorize", "/oauth/authorize", response -> response.status() == 302);
+        String state = authorize.queryParameter("Location", "state");
+        if (state == null) {
+            return false;
+        }
+        // Both outcomes render a page; only the success page is titled "Connected to Canva"
+        Predicate<Response> connected = response -> response.ok() && response.body().contains("Connected to Canva");
+        Response callback = get("redirect", "/oauth/redirect?code=load-" + codes.incrementAndGet()
+                + "&state=" + encode(state), connected);
+        return connected.test(callback);
+    }
+
+    Response get(String step, String path) {
+        return get(step, path, Response::ok);
+    }
+
+    Response get(String step, String path, Predicate<Response> success) {
+        return send(step, request(path).GET(), success);
+    }
+
+    Response postForm(String step, String path, Map<String, String> form) {
+        return postForm(step, path, form, Response::ok);
+    }
+
+    Response postForm(String step, String path, Map<String, String> form, Predicate<Response> success) {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((name, value) -> body.add(encode(name) + "=" + encode(value)));
+        return send(step, request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())), success);
+    }
+
+    Response postJson(String step, String path, Object body, Predicate<Response> success) {
+        try {
+            return send(step, request(path)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))), success);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize request body", e);
+        }
+    }
+
+    Response postMultipart(String step, String path, String field, String filename, byte[] content,
+                           Predicate<Response> success) {
+        String boundary = "load-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + field + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return send(step, request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())), success);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+        String cookie = sessionCookie;
+        if (cookie != null) {
+            builder.header("Cookie", cookie);
+        }
+        return builder;
+    }
+
+    private Response send(String step, HttpRequest.Builder builder, Predicate<Response> success) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            HttpResponse<String> raw = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            raw.headers().firstValue("Set-Cookie").ifPresent(this::rememberSession);
+            response = new Response(raw.statusCode(), raw.headers().map(), raw.body(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = new Response(0, Map.of(), "", e.toString());
+        } catch (IOException e) {
+            response = new Response(0, Map.of(), "", e.toString());
+        }
+        LoadRecorder current = recorder;
+        if (current != null) {
+            current.record(scenario, step, System.nanoTime() - start, success.test(response), response.status());
+        }
+        return response;
+    }
+
+    private void rememberSession(String setCookie) {
+        int end = setCookie.indexOf(';');
+        sessionCookie = end < 0 ? setCookie : setCookie.substring(0, end);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param status HTTP status, or 0 when the request failed
+     * @param error  the exception that ended the request, or null
+     */
+    record Response(int status, Map<String, List<String>> headers, String body, String error) {
+
+        boolean ok() {
+            return status >= 200 && status < 400;
+        }
+
+        /** A 2xx JSON response whose {@code success} field is true */
+        boolean succeeded() {
+            return ok() && Boolean.TRUE.equals(json().get("success"));
+        }
+
+        Map<String, Object> json() {
+            if (body.isEmpty()) {
+                return Map.of();
+            }
+            try {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> map = objectMapper.readValue(body, Map.class);
+                return map;
+            } catch (IOException e) {
+                return Map.of();
+            }
+        }
+
+        String header(String name) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                    return header.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        /** A query parameter of the URL in the given header (e.g. a redirect's Location) */
+        String queryParameter(String header, String name) {
+            String url = header(header);
+            if (url == null || url.indexOf('?') < 0) {
+                return null;
+            }
+            for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                    return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races on {@link OAuthStateStore} from many platform threads at once: redirects redeeming the
+ * same state, logins storing while the sweeper drains, entries expiring or being evicted while
+ * they are read. The invariants are the ones the OAuth flow relies on: a verifier is handed out
+ * at most once and only for its own state, and every stored entry leaves the store exactly once
+ * (redeemed, expired or evicted), so nothing is lost or counted twice.
+ */
+class OAuthStateStoreStressTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    @Test
+    void concurrentRedirectsRedeemEachStateOnce() throws Exception {
+        OAuthStateStore store = store(Duration.ofMinutes(10), 100_000);
+        int states = 20_000;
+        for (int i = 0; i < states; i++) {
+            store.store("state-" + i, "verifier-" + i);
+        }
+
+        Map<String, String> redeemed = new ConcurrentHashMap<>();
+        AtomicInteger reused = new AtomicInteger();
+        AtomicInteger mixedUp = new AtomicInteger();
+        // Every thread walks the states in the same order, so they collide on each one
+        race(THREADS, thread -> {
+            for (int i = 0; i < states; i++) {
+                String state = "state-" + i;
+                String verifier = (i + thread) % 3 == 0 ? store.getCodeVerifier(state) : null;
+                if (verifier != null && !verifier.equals("verifier-" + i)) {
+                    mixedUp.incrementAndGet();
+                }
+                verifier = store.consume(state);
+                if (verifier == null) {
+                    continue;
+                }
+                if (!verifier.equals("verifier-" + i)) {
+                    mixedUp.incrementAndGet();
+                }
+                if (redeemed.putIfAbsent(state, verifier) != null) {
+                    reused.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(reused).as("states redeemed more than once").hasValue(0);
+        assertThat(mixedUp).as("verifiers returned for another state").hasValue(0);
+        assertThat(redeemed).as("states redeemed").hasSize(states);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void loginsRacingTheSweeperKeepTheirVerifiers() throws Exception {
+        OAuthStateStore store = store(Duration.ofMinutes(10), 1_000_000);
+        int loginsPerThread = 20_000;
+        LongAdder lost = new LongAdder();
+        LongAdder mixedUp = new LongAdder();
+
+        try (Sweeper ignored = new Sweeper(store)) {
+            race(THREADS, thread -> {
+                for (int i = 0; i < loginsPerThread; i++) {
+                    String state = thread + "-" + i;
+                    store.store(state, "verifier-" + state);
+                    String verifier = store.consume(state);
+                    if (verifier == null) {
+                        lost.increment();
+                    } else if (!verifier.equals("verifier-" + state)) {
+                        mixedUp.increment();
+                    }
+                }
+            });
+        }
+
+        assertThat(lost.sum()).as("logins whose state vanished before the redirect").isZero();
+        assertThat(mixedUp.sum()).as("verifiers returned for another state").isZero();
+        assertThat(store.size()).isZero();
+        assertThat(store.expiredCount() + store.evictedCount()).isZero();
+    }
+
+    @Test
+    void expiryRacingRedirectsRemovesEveryEntryExactlyOnce() throws Exception {
+        Duration ttl = Duration.ofMillis(2);
+        OAuthStateStore store = store(ttl, 1_000_000);
+        int loginsPerThread = 1_000;
+        LongAdder stored = new LongAdder();
+        LongAdder redeemed = new LongAdder();
+        LongAdder mixedUp = new LongAdder();
+
+        try (Sweeper ignored = new Sweeper(store)) {
+            race(THREADS, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < loginsPerThread; i++) {
+                    String state = thread + "-" + i;
+                    store.store(state, "verifier-" + state);
+                    stored.increment();
+                    // The redirect arrives around the TTL, sometimes looking the state up first
+                    LockSupport.parkNanos(random.nextLong(ttl.toNanos() * 2));
+                    if (random.nextBoolean()) {
+                        store.getCodeVerifier(state);
+                    }
+                    // Some logins are abandoned and left to expire
+                    if (random.nextInt(4) == 0) {
+                        continue;
+                    }
+                    String verifier = store.consume(state);
+                    if (verifier != null) {
+                        redeemed.increment();
+                        if (!verifier.equals("verifier-" + state)) {
+                            mixedUp.increment();
+                        }
+                    }
+                }
+            });
+        }
+        LockSupport.parkNanos(ttl.toNanos() * 2);
+        store.sweep();
+
+        assertThat(mixedUp.sum()).as("verifiers returned for another state").isZero();
+        assertThat(store.size()).as("entries left after everything expired").isZero();
+        assertThat(redeemed.sum() + store.expiredCount() + store.evictedCount())
+                .as("redeemed + expired + evicted")
+                .isEqualTo(stored.sum());
+    }
+
+    @Test
+    void fullStoreEvictsWithoutLosingCount() throws Exception {
+        int capacity = 1_000;
+        OAuthStateStore store = store(Duration.ofMinutes(10), capacity);
+        int loginsPerThread = 10_000;
+        LongAdder redeemed = new LongAdder();
+        LongAdder mixedUp = new LongAdder();
+
+        try (Sweeper ignored = new Sweeper(store)) {
+            race(THREADS, thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < loginsPerThread; i++) {
+                    store.store(thread + "-" + i, "verifier-" + thread + "-" + i);
+                    // Redeem a recent login of any thread; it may already have been evicted
+                    String state = random.nextInt(THREADS) + "-" + Math.max(0, i - random.nextInt(2 * capacity / THREADS + 1));
+                    String verifier = store.consume(state);
+                    if (verifier != null) {
+                        redeemed.increment();
+                        if (!verifier.equals("verifier-" + state)) {
+                            mixedUp.increment();
+                        }
+                    }
+                }
+            });
+        }
+        store.sweep();
+
+        assertThat(mixedUp.sum()).as("verifiers returned for another state").isZero();
+        assertThat(store.size()).as("entries after a sweep").isLessThanOrEqualTo(capacity);
+        assertThat(redeemed.sum() + store.expiredCount() + store.evictedCount() + store.size())
+                .as("redeemed + expired + evicted + still pending")
+                .isEqualTo((long) THREADS * loginsPerThread);
+    }
+
+    @Test
+    void redeemedLoginsDoNotGrowTheExpiryQueue() throws Exception {
+        int capacity = 1_000;
+        OAuthStateStore store = store(Duration.ofMinutes(10), capacity);
+
+        // Every login is redeemed right away, so the store stays nearly empty and nothing
+        // expires or is evicted; only the stale queue nodes would pile up
+        race(THREADS, thread -> {
+            for (int i = 0; i < capacity * 20; i++) {
+                String state = thread + "-" + i;
+                store.store(state, "verifier-" + state);
+                assertThat(store.consume(state)).isEqualTo("verifier-" + state);
+            }
+        });
+        store.sweep();
+
+        assertThat(store.size()).as("pending logins").isZero();
+        assertThat(store.queuedSize()).as("expiry queue nodes").isLessThanOrEqualTo(2 * capacity + THREADS);
+    }
+
+    @Test
+    void statelessStateIdsAreRedeemedOnce() throws Exception {
+        OAuthStateStore store = store(Duration.ofMinutes(10), 1_000_000);
+        int ids = 20_000;
+        AtomicInteger[] wins = new AtomicInteger[ids];
+        for (int i = 0; i < ids; i++) {
+            wins[i] = new AtomicInteger();
+        }
+
+        race(THREADS, thread -> {
+            for (int i = 0; i < ids; i++) {
+                if (store.markRedeemed("id-" + i)) {
+                    wins[i].incrementAndGet();
+                }
+            }
+        });
+
+        for (int i = 0; i < ids; i++) {
+            assertThat(wins[i].get()).as("redemptions of id-%d", i).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void floodedStoreKeepsRedeemedIds() throws Exception {
+        int capacity = 1_000;
+        OAuthStateStore store = store(Duration.ofMinutes(10), capacity);
+        int ids = capacity / 2;
+        for (int i = 0; i < ids; i++) {
+            assertThat(store.markRedeemed("id-" + i)).isTrue();
+        }
+
+        // Anonymous /oauth/authorize calls fill the pending store many times over
+        race(THREADS, thread -> {
+            for (int i = 0; i < capacity * 10; i++) {
+                store.store(thread + "-" + i, "verifier");
+            }
+        });
+
+        assertThat(store.size()).as("pending logins after the flood").isLessThanOrEqualTo(capacity);
+        assertThat(store.redeemedSize()).as("redeemed ids after the flood").isEqualTo(ids);
+        for (int i = 0; i < ids; i++) {
+            assertThat(store.markRedeemed("id-" + i)).as("replay of id-%d", i).isFalse();
+        }
+    }
+
+    @Test
+    void fullRedeemedSetRefusesRatherThanForgets() throws Exception {
+        int capacity = 1_000;
+        OAuthStateStore store = store(Duration.ofMinutes(10), capacity);
+        AtomicInteger accepted = new AtomicInteger();
+
+        race(THREADS, thread -> {
+            for (int i = 0; i < capacity; i++) {
+                if (store.markRedeemed(thread + "-" + i)) {
+                    accepted.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(accepted.get()).as("ids accepted").isLessThanOrEqualTo(capacity + THREADS);
+        race(THREADS, thread -> {
+            for (int i = 0; i < capacity; i++) {
+                if (store.markRedeemed(thread + "-" + i)) {
+                    accepted.incrementAndGet();
+                }
+            }
+        });
+        assertThat(store.redeemedSize()).as("ids remembered").isEqualTo(accepted.get());
+    }
+
+    private static OAuthStateStore store(Duration ttl, int capacity) {
+        return new OAuthStateStore(ttl, capacity, capacity, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Run {@code body} on {@code threads} platform threads released at the same instant, and
+     * rethrow the first failure
+     */
+    static void race(int threads, IntConsumer body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> started = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            started.add(Thread.ofPlatform().name("race-" + i).start(() -> {
+                try {
+                    start.await();
+                    body.accept(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join(TimeUnit.MINUTES.toMillis(2));
+            assertThat(thread.isAlive()).as("%s finished", thread.getName()).isFalse();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Racing thread failed", failure.get());
+        }
+    }
+
+    /**
+     * Calls {@link OAuthStateStore#sweep} in a loop, as the scheduler would under load
+     */
+    private static final class Sweeper implements AutoCloseable {
+
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final Thread thread;
+
+        Sweeper(OAuthStateStore store) {
+            thread = Thread.ofPlatform().name("sweeper").start(() -> {
+                while (running.get()) {
+                    store.sweep();
+                    Thread.onSpinWait();
+                }
+            });
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            running.set(false);
+            thread.join();
+        }
+    }
+}
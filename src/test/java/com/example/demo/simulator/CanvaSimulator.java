@@ -0,0 +1,756 @@
+package com.example.demo.simulator;
+
+import com.example.demo.config.CanvaOperationResolver;
+import com.example.demo.service.RosterPosition;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the Canva API, for load tests, benchmarks and reproducing upstream
+ * slowdowns without calling api.canva.com. Point the application at it with
+ * {@code canva.api.base-url=}{@link #baseUrl()} and {@code canva.oauth.token-url=}{@link #tokenUrl()}.
+ * <p>
+ * Requests are routed by the operation ids of {@code openapi/spec.yml} and
+ * {@code openapi/private-api.yml}. The operations this application uses are modelled with
+ * state: OAuth tokens, the current user, brand templates and their datasets, designs,
+ * folders, and autofill, asset upload and export jobs that stay {@code in_progress} for
+ * {@link #jobDuration(Duration)} before they succeed or fail. Every other operation in the
+ * specs answers with an example built from its response schema ({@link SpecExamples}).
+ * <p>
+ * Latency, errors, 429s and slow bodies are injected per {@link FaultProfile}, either for
+ * every operation ({@link #faults()}) or for one ({@link #faults(String)}).
+ * <p>
+ * Run standalone on port 8089 (or the first argument) with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.demo.simulator.CanvaSimulator
+ * </pre>
+ */
+public class CanvaSimulator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanvaSimulator.class);
+    private static final String BASE_PATH = "/rest";
+    private static final Set<String> UNAUTHENTICATED = Set.of("exchangeAccessToken", "introspectToken", "revokeTokens");
+    private static final String ROOT_FOLDER = "root";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CanvaOperationResolver operations =
+            new CanvaOperationResolver("openapi/spec.yml", "openapi/private-api.yml");
+    private final SpecExamples examples = new SpecExamples("openapi/spec.yml", "openapi/private-api.yml");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final FaultProfile defaultFaults = new FaultProfile();
+    private final Map<String, FaultProfile> operationFaults = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, String> authorizationCodes = new ConcurrentHashMap<>();
+    private final Set<String> redeemedCodes = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> accessTokens = new ConcurrentHashMap<>();
+    private final Map<String, String> refreshTokens = new ConcurrentHashMap<>();
+    private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, Object>> brandTemplates = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> designs = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> folders = new ConcurrentHashMap<>();
+    private final Map<String, List<Map<String, Object>>> folderItems = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private volatile long jobDurationNanos = Duration.ofMillis(500).toNanos();
+    private volatile long tokenLifetimeSeconds = Duration.ofHours(4).toSeconds();
+
+    private CanvaSimulator(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.createContext(BASE_PATH + "/", this::handle);
+        server.setExecutor(executor);
+        seed();
+    }
+
+    /**
+     * Start a simulator on a free port
+     */
+    public static CanvaSimulator start() throws IOException {
+        return start(0);
+    }
+
+    public static CanvaSimulator start(int port) throws IOException {
+        CanvaSimulator simulator = new CanvaSimulator(port);
+        simulator.server.start();
+        return simulator;
+    }
+
+    /** Value for {@code canva.api.base-url} */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + BASE_PATH;
+    }
+
+    /** Value for {@code canva.oauth.token-url} */
+    public String tokenUrl() {
+        return baseUrl() + "/v1/oauth/token";
+    }
+
+    /**
+     * What Canva does when the user approves access: issue an authorization code bound to the
+     * PKCE {@code code_challenge} of the authorize URL. Exchanging it requires the matching
+     * {@code code_verifier} and succeeds once; made-up codes are accepted with any verifier.
+     */
+    public String authorize(String codeChallenge) {
+        String code = "simac_" + nextId();
+        authorizationCodes.put(code, codeChallenge);
+        return code;
+    }
+
+    /**
+     * Faults applied to every operation without a profile of its own
+     */
+    public FaultProfile faults() {
+        return defaultFaults;
+    }
+
+    /**
+     * Faults of one operation, e.g. {@code createDesignAutofillJob}; replaces {@link #faults()}
+     * for it
+     */
+    public FaultProfile faults(String operationId) {
+        return operationFaults.computeIfAbsent(operationId, id -> new FaultProfile());
+    }
+
+    /**
+     * Back to answering at once, without errors, for every operation
+     */
+    public void resetFaults() {
+        operationFaults.clear();
+        defaultFaults.latency(LatencyDistribution.none()).errors(0, 503).rateLimitBursts(Duration.ZERO, Duration.ZERO)
+                .rateLimited(0).slowDrip(0, Duration.ZERO).jobFailures(0);
+    }
+
+    /**
+     * How long async jobs stay {@code in_progress}
+     */
+    public CanvaSimulator jobDuration(Duration duration) {
+        this.jobDurationNanos = duration.toNanos();
+        return this;
+    }
+
+    /**
+     * {@code expires_in} of issued access tokens
+     */
+    public CanvaSimulator tokenLifetime(Duration lifetime) {
+        this.tokenLifetimeSeconds = lifetime.toSeconds();
+        return this;
+    }
+
+    /**
+     * Make an access token fail with 401 from now on, as if it expired
+     */
+    public void expireToken(String accessToken) {
+        revokedTokens.add(accessToken);
+    }
+
+    /**
+     * Make every access token issued so far fail with 401, as if they all expired
+     */
+    public void expireTokens() {
+        revokedTokens.addAll(accessTokens.keySet());
+    }
+
+    /** Requests received for the operation, including failed and rejected ones */
+    public long requestCount(String operationId) {
+        LongAdder count = requestCounts.get(operationId);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long totalRequests() {
+        return requestCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /** Ids of the seeded brand templates */
+    public List<String> brandTemplateIds() {
+        return new ArrayList<>(brandTemplates.keySet());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Request handling
+
+    private void handle(HttpExchange exchange) {
+        try {
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            String method = exchange.getRequestMethod();
+            URI uri = exchange.getRequestURI();
+            String operationId = operations.resolve(method, uri);
+            requestCounts.computeIfAbsent(operationId, id -> new LongAdder()).increment();
+
+            FaultProfile faults = operationFaults.getOrDefault(operationId, defaultFaults);
+            Response response;
+            if (CanvaOperationResolver.UNKNOWN.equals(operationId)) {
+                response = error(404, "endpoint_not_found", "No operation for " + method + " " + uri.getPath());
+            } else {
+                response = injectFaults(faults);
+                if (response == null) {
+                    response = authenticate(operationId, exchange);
+                }
+                if (response == null) {
+                    response = dispatchOrFail(operationId, new Request(exchange, uri, requestBody));
+                }
+            }
+            send(exchange, response, faults);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Usually the client gave up (e.g. timed out during a slow drip); the exchange is closed below
+            logger.debug("Could not complete {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answer malformed JSON with 400 and a simulator bug with 500, so that neither looks like
+     * an upstream connection failure to the application
+     */
+    private Response dispatchOrFail(String operationId, Request request) throws IOException {
+        try {
+            return dispatch(operationId, request);
+        } catch (JsonProcessingException e) {
+            return error(400, "bad_request_body", "Malformed JSON: " + e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Simulated {} failed", operationId, e);
+            return error(500, "internal_error", "Simulator failed: " + e);
+        }
+    }
+
+    private Response injectFaults(FaultProfile faults) throws InterruptedException {
+        long latency = faults.latency().sampleMillis();
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (faults.inRateLimitBurst(System.currentTimeMillis()) || random.nextDouble() < faults.rateLimitRate()) {
+            return error(429, "too_many_requests", "Rate limit exceeded, retry later").header("Retry-After", "1");
+        }
+        if (random.nextDouble() < faults.errorRate()) {
+            return error(faults.errorStatus(), "internal_error", "Simulated upstream failure");
+        }
+        return null;
+    }
+
+    private Response authenticate(String operationId, HttpExchange exchange) {
+        if (UNAUTHENTICATED.contains(operationId)) {
+            return null;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return error(401, "invalid_access_token", "Missing bearer token");
+        }
+        if (revokedTokens.contains(authorization.substring("Bearer ".length()))) {
+            return error(401, "invalid_access_token", "Access token expired");
+        }
+        return null;
+    }
+
+    private Response dispatch(String operationId, Request request) throws IOException {
+        return switch (operationId) {
+            case "exchangeAccessToken" -> exchangeToken(request);
+            case "revokeTokens" -> revoke(request);
+            case "usersMe" -> json(200, Map.of("team_user", teamUser(request.userId())));
+            case "getUserProfile" -> json(200, Map.of("profile", Map.of("display_name", "Coach " + request.userId())));
+            case "listBrandTemplates" -> json(200, Map.of("items", new ArrayList<>(brandTemplates.values())));
+            case "getBrandTemplate" -> found(brandTemplates.get(request.segment(3)), "brand_template");
+            case "getBrandTemplateDataset" -> brandTemplates.containsKey(request.segment(3))
+                    ? json(200, Map.of("dataset", dataset()))
+                    : error(404, "not_found", "Brand template not found");
+            case "listDesigns" -> json(200, Map.of("items", new ArrayList<>(designs.values())));
+            case "createDesign" -> createDesign(request);
+            case "getDesign" -> found(designs.get(request.segment(3)), "design");
+            case "createDesignAutofillJob" -> createAutofill(request);
+            case "getDesignAutofillJob", "GetAssetUploadJob", "getDesignExportJob" -> jobStatus(request.segment(3));
+            case "CreateAssetUploadJob" -> createAssetUpload(request);
+            case "createDesignExportJob" -> createExport(request);
+            case "listFolderItems" -> listFolderItems(request);
+            case "getFolder" -> found(folders.get(request.segment(3)), "folder");
+            case "createFolder" -> createFolder(request);
+            case "moveFolderItem" -> moveFolderItem(request);
+            default -> {
+                Object example = examples.forOperation(operationId);
+                yield json(examples.successStatus(operationId), example);
+            }
+        };
+    }
+
+    // OAuth and identity
+
+    private Response exchangeToken(Request request) {
+        Map<String, String> form = request.form();
+        String userId;
+        switch (form.getOrDefault("grant_type", "")) {
+            case "authorization_code" -> {
+                String code = form.get("code");
+                if (code == null || code.isEmpty() || form.get("code_verifier") == null) {
+                    return error(400, "invalid_grant", "Missing code or code_verifier");
+                }
+                String challenge = authorizationCodes.remove(code);
+                if (challenge != null) {
+                    redeemedCodes.add(code);
+                    if (!challenge.equals(s256(form.get("code_verifier")))) {
+                        return error(400, "invalid_grant", "code_verifier does not match the code_challenge");
+                    }
+                } else if (redeemedCodes.contains(code)) {
+                    return error(400, "invalid_grant", "Authorization code already used");
+                }
+                userId = userFor(code);
+            }
+            case "refresh_token" -> {
+                userId = refreshTokens.remove(form.getOrDefault("refresh_token", ""));
+                if (userId == null) {
+                    return error(400, "invalid_grant", "Unknown or already used refresh token");
+                }
+            }
+            default -> {
+                return error(400, "unsupported_grant_type", "Unsupported grant_type");
+            }
+        }
+        String accessToken = "simat_" + nextId();
+        String refreshToken = "simrt_" + nextId();
+        accessTokens.put(accessToken, userId);
+        refreshTokens.put(refreshToken, userId);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", accessToken);
+        body.put("refresh_token", refreshToken);
+        body.put("token_type", "Bearer");
+        body.put("expires_in", tokenLifetimeSeconds);
+        body.put("scope", form.getOrDefault("scope", "design:content:read design:content:write"));
+        return json(200, body);
+    }
+
+    private Response revoke(Request request) {
+        String token = request.form().get("token");
+        if (token != null) {
+            revokedTokens.add(token);
+            refreshTokens.remove(token);
+        }
+        return json(200, Map.of());
+    }
+
+    /**
+     * Tokens issued by this simulator map to the user they were issued for; any other token
+     * stands for a user of its own, so load tests can use made-up tokens
+     */
+    private String userFor(String token) {
+        String userId = accessTokens.get(token);
+        return userId != null ? userId : "SimUser" + Integer.toHexString(token.hashCode());
+    }
+
+    private static Map<String, Object> teamUser(String userId) {
+        // Spread users over ten clubs
+        return Map.of("user_id", userId, "team_id", "SimTeam" + Math.floorMod(userId.hashCode(), 10));
+    }
+
+    // Brand templates and designs
+
+    private void seed() {
+        String[] titles = {"Match day line-up", "Full-time score", "Player of the match"};
+        for (String title : titles) {
+            String id = "BSIM" + nextId();
+            Map<String, Object> template = examples.forSchema("BrandTemplate");
+            template.put("id", id);
+            template.put("title", title);
+            template.put("created_at", nowSeconds());
+            template.put("updated_at", nowSeconds());
+            brandTemplates.put(id, template);
+        }
+
+        folders.put(ROOT_FOLDER, folder(ROOT_FOLDER, "Projects"));
+        folderItems.put(ROOT_FOLDER, new CopyOnWriteArrayList<>());
+        for (String name : new String[] {"Season fixtures", "Club branding"}) {
+            Map<String, Object> folder = folder("FSIM" + nextId(), name);
+            folders.put((String) folder.get("id"), folder);
+            folderItems.put((String) folder.get("id"), new CopyOnWriteArrayList<>());
+            folderItems.get(ROOT_FOLDER).add(Map.of("type", "folder", "folder", folder));
+            for (int i = 1; i <= 5; i++) {
+                Map<String, Object> design = design(name + " " + i);
+                designs.put((String) design.get("id"), design);
+                folderItems.get(folder.get("id")).add(Map.of("type", "design", "design", design));
+            }
+        }
+    }
+
+    /**
+     * Dataset fields named after the roster positions, upper-cased like a real template, plus
+     * an image field a roster cannot fill
+     */
+    private static Map<String, Object> dataset() {
+        Map<String, Object> dataset = new LinkedHashMap<>();
+        for (RosterPosition position : RosterPosition.values()) {
+            dataset.put(position.key().toUpperCase(), Map.of("type", "text"));
+        }
+        dataset.put("HOME_CREST", Map.of("type", "image"));
+        return dataset;
+    }
+
+    private Map<String, Object> design(String title) {
+        String id = "DSIM" + nextId();
+        Map<String, Object> design = examples.forSchema("Design");
+        design.put("id", id);
+        design.put("title", title);
+        design.put("created_at", nowSeconds());
+        design.put("updated_at", nowSeconds());
+        design.put("urls", Map.of(
+                "edit_url", "https://www.canva.com/api/design/" + id + "/edit",
+                "view_url", "https://www.canva.com/api/design/" + id + "/view"));
+        return design;
+    }
+
+    private Response createDesign(Request request) throws IOException {
+        Map<String, Object> body = request.json();
+        Object title = body.get("title");
+        Map<String, Object> design = design(title != null ? title.toString() : "Untitled design");
+        designs.put((String) design.get("id"), design);
+        folderItems.get(ROOT_FOLDER).add(Map.of("type", "design", "design", design));
+        return json(200, Map.of("design", design));
+    }
+
+    // Async jobs
+
+    private Response createAutofill(Request request) throws IOException {
+        Map<String, Object> body = request.json();
+        Object templateId = body.get("brand_template_id");
+        if (templateId == null || !brandTemplates.containsKey(templateId.toString())) {
+            return error(404, "not_found", "Brand template not found");
+        }
+        if (!(body.get("data") instanceof Map<?, ?> data) || data.isEmpty()) {
+            return error(400, "invalid_field", "data must not be empty");
+        }
+        Object title = body.get("title");
+        String designTitle = title != null ? title.toString() : brandTemplates.get(templateId.toString()).get("title").toString();
+        return startJob(request, "autofill", "job", () -> {
+            Map<String, Object> design = design(designTitle);
+            designs.put((String) design.get("id"), design);
+            folderItems.get(ROOT_FOLDER).add(Map.of("type", "design", "design", design));
+            return Map.of("result", Map.of("type", "create_design", "design", design));
+        });
+    }
+
+    private Response createAssetUpload(Request request) {
+        String name = "Upload";
+        String metadata = request.exchange.getRequestHeaders().getFirst("Asset-Upload-Metadata");
+        if (metadata != null) {
+            try {
+                Object nameBase64 = objectMapper.readValue(metadata, Map.class).get("name_base64");
+                if (nameBase64 != null) {
+                    name = new String(Base64.getDecoder().decode(nameBase64.toString()), StandardCharsets.UTF_8);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                return error(400, "invalid_header_value", "Asset-Upload-Metadata is not valid");
+            }
+        }
+        if (request.body.length == 0) {
+            return error(400, "invalid_file", "Empty upload");
+        }
+        String assetName = name;
+        return startJob(request, "asset-upload", "job", () -> {
+            Map<String, Object> asset = examples.forSchema("Asset");
+            asset.put("id", "MSIM" + nextId());
+            asset.put("name", assetName);
+            asset.put("created_at", nowSeconds());
+            asset.put("updated_at", nowSeconds());
+            return Map.of("asset", asset);
+        });
+    }
+
+    private Response createExport(Request request) throws IOException {
+        Object designId = request.json().get("design_id");
+        if (designId == null || !designs.containsKey(designId.toString())) {
+            return error(404, "not_found", "Design not found");
+        }
+        return startJob(request, "export", "job", () -> Map.of("urls",
+                List.of("https://export-download.canva.com/" + designId + "/0001.png")));
+    }
+
+    private Response startJob(Request request, String kind, String wrapper, JobResult result) {
+        String id = kind.substring(0, 1).toUpperCase() + "JSIM" + nextId();
+        FaultProfile faults = operationFaults.getOrDefault(request.operationIdOfStatus(kind), defaultFaults);
+        boolean fails = ThreadLocalRandom.current().nextDouble() < faults.jobFailureRate();
+        jobs.put(id, new Job(id, kind, System.nanoTime() + jobDurationNanos, fails, result));
+        return json(200, Map.of(wrapper, Map.of("id", id, "status", "in_progress")));
+    }
+
+    private Response jobStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return error(404, "not_found", "Job not found");
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", job.id);
+        if (System.nanoTime() - job.doneAtNanos < 0) {
+            body.put("status", "in_progress");
+        } else if (job.fails) {
+            body.put("status", "failed");
+            body.put("error", Map.of("code", job.kind + "_failed", "message", "Simulated " + job.kind + " failure"));
+        } else {
+            body.put("status", "success");
+            body.putAll(job.result());
+        }
+        return json(200, Map.of("job", body));
+    }
+
+    // Folders
+
+    private Map<String, Object> folder(String id, String name) {
+        Map<String, Object> folder = examples.forSchema("Folder");
+        folder.put("id", id);
+        folder.put("name", name);
+        folder.put("created_at", nowSeconds());
+        folder.put("updated_at", nowSeconds());
+        return folder;
+    }
+
+    private Response listFolderItems(Request request) {
+        List<Map<String, Object>> items = folderItems.get(request.segment(3));
+        if (items == null) {
+            return error(404, "not_found", "Folder not found");
+        }
+        String itemTypes = request.query().get("item_types");
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> item : items) {
+            if (itemTypes == null || List.of(itemTypes.split(",")).contains(item.get("type").toString())) {
+                result.add(item);
+            }
+        }
+        return json(200, Map.of("items", result));
+    }
+
+    private Response createFolder(Request request) throws IOException {
+        Map<String, Object> body = request.json();
+        Object name = body.get("name");
+        Object parent = body.getOrDefault("parent_folder_id", ROOT_FOLDER);
+        List<Map<String, Object>> parentItems = folderItems.get(parent.toString());
+        if (name == null || parentItems == null) {
+            return error(400, "invalid_field", "name and an existing parent_folder_id are required");
+        }
+        Map<String, Object> folder = folder("FSIM" + nextId(), name.toString());
+        folders.put((String) folder.get("id"), folder);
+        folderItems.put((String) folder.get("id"), new CopyOnWriteArrayList<>());
+        parentItems.add(Map.of("type", "folder", "folder", folder));
+        return json(200, Map.of("folder", folder));
+    }
+
+    private Response moveFolderItem(Request request) throws IOException {
+        Map<String, Object> body = request.json();
+        List<Map<String, Object>> target = folderItems.get(String.valueOf(body.get("to_folder_id")));
+        Object itemId = body.get("item_id");
+        if (target == null || itemId == null) {
+            return error(404, "not_found", "Folder or item not found");
+        }
+        for (List<Map<String, Object>> items : folderItems.values()) {
+            for (Map<String, Object> item : items) {
+                if (item.get(item.get("type")) instanceof Map<?, ?> summary && itemId.equals(summary.get("id"))) {
+                    items.remove(item);
+                    target.add(item);
+                    return new Response(examples.successStatus("moveFolderItem"), null);
+                }
+            }
+        }
+        return error(404, "not_found", "Item not found");
+    }
+
+    // Responses
+
+    private Response found(Map<String, Object> resource, String wrapper) {
+        return resource != null ? json(200, Map.of(wrapper, resource)) : error(404, "not_found", wrapper + " not found");
+    }
+
+    private Response json(int status, Object body) {
+        return new Response(status, body);
+    }
+
+    private static Response error(int status, String code, String message) {
+        return new Response(status, Map.of("code", code, "message", message));
+    }
+
+    private void send(HttpExchange exchange, Response response, FaultProfile faults) throws IOException, InterruptedException {
+        response.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(response.body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        int chunk = faults.dripChunkBytes();
+        if (chunk <= 0) {
+            out.write(bytes);
+            return;
+        }
+        for (int offset = 0; offset < bytes.length; offset += chunk) {
+            out.write(bytes, offset, Math.min(chunk, bytes.length - offset));
+            out.flush();
+            Thread.sleep(faults.dripIntervalMillis());
+        }
+    }
+
+    private static String s256(String codeVerifier) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(codeVerifier.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String nextId() {
+        return Long.toString(ids.incrementAndGet(), 36) + Long.toString(ThreadLocalRandom.current().nextLong(1L << 40), 36);
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static final class Response {
+        final int status;
+        final Object body;
+        final Map<String, String> headers = new HashMap<>();
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        Response header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    private final class Request {
+        final HttpExchange exchange;
+        final URI uri;
+        final byte[] body;
+
+        Request(HttpExchange exchange, URI uri, byte[] body) {
+            this.exchange = exchange;
+            this.uri = uri;
+            this.body = body;
+        }
+
+        /** Path segment after {@code /rest}, e.g. 3 is the id in {@code /v1/designs/{id}} */
+        String segment(int index) {
+            String[] segments = uri.getPath().substring(BASE_PATH.length()).split("/");
+            return index < segments.length ? segments[index] : null;
+        }
+
+        String userId() {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            return userFor(authorization.substring("Bearer ".length()));
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> json() throws IOException {
+            return body.length == 0 ? Map.of() : objectMapper.readValue(body, Map.class);
+        }
+
+        Map<String, String> form() {
+            return parameters(new String(body, StandardCharsets.UTF_8));
+        }
+
+        Map<String, String> query() {
+            return parameters(uri.getRawQuery());
+        }
+
+        /** Status operation whose faults apply to jobs of {@code kind} */
+        String operationIdOfStatus(String kind) {
+            return switch (kind) {
+                case "autofill" -> "getDesignAutofillJob";
+                case "asset-upload" -> "GetAssetUploadJob";
+                default -> "getDesignExportJob";
+            };
+        }
+
+        private static Map<String, String> parameters(String encoded) {
+            Map<String, String> parameters = new HashMap<>();
+            if (encoded == null || encoded.isEmpty()) {
+                return parameters;
+            }
+            for (String pair : encoded.split("&")) {
+                int equals = pair.indexOf('=');
+                String name = URLDecoder.decode(equals >= 0 ? pair.substring(0, equals) : pair, StandardCharsets.UTF_8);
+                String value = equals >= 0 ? URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8) : "";
+                parameters.put(name, value);
+            }
+            return parameters;
+        }
+    }
+
+    @FunctionalInterface
+    private interface JobResult {
+        Map<String, Object> get();
+    }
+
+    private static final class Job {
+        final String id;
+        final String kind;
+        final long doneAtNanos;
+        final boolean fails;
+        private final JobResult pending;
+        private Map<String, Object> result;
+
+        Job(String id, String kind, long doneAtNanos, boolean fails, JobResult pending) {
+            this.id = id;
+            this.kind = kind;
+            this.doneAtNanos = doneAtNanos;
+            this.fails = fails;
+            this.pending = pending;
+        }
+
+        /** Produced once, on the first status read after completion, like the real design appearing */
+        synchronized Map<String, Object> result() {
+            if (result == null) {
+                result = pending.get();
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        CanvaSimulator simulator = start(args.length > 0 ? Integer.parseInt(args[0]) : 8089);
+        System.out.println("Canva simulator listening. Run the application with:");
+        System.out.println("  --canva.api.base-url=" + simulator.baseUrl());
+        System.out.println("  --canva.oauth.token-url=" + simulator.tokenUrl());
+        Thread.currentThread().join();
+    }
+}
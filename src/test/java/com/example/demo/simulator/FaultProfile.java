@@ -0,0 +1,105 @@
+package com.example.demo.simulator;
+
+import java.time.Duration;
+
+/**
+ * How the simulator misbehaves, for all operations or one, see {@link CanvaSimulator#faults()}.
+ * Every setting can be changed while requests are running; the defaults answer at once,
+ * without errors.
+ */
+public final class FaultProfile {
+
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile long rateLimitPeriodMillis;
+    private volatile long rateLimitBurstMillis;
+    private volatile double rateLimitRate;
+    private volatile int dripChunkBytes;
+    private volatile long dripIntervalMillis;
+    private volatile double jobFailureRate;
+
+    /**
+     * Delay before every response
+     */
+    public FaultProfile latency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Answer this fraction of requests with {@code status} (e.g. 500, 502, 503) instead
+     */
+    public FaultProfile errors(double rate, int status) {
+        this.errorRate = rate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    /**
+     * Answer every request with 429 during the first {@code burst} of each {@code period}, like
+     * a rate limit window being exhausted
+     */
+    public FaultProfile rateLimitBursts(Duration period, Duration burst) {
+        this.rateLimitPeriodMillis = period.toMillis();
+        this.rateLimitBurstMillis = burst.toMillis();
+        return this;
+    }
+
+    /**
+     * Answer this fraction of requests with 429 at any time
+     */
+    public FaultProfile rateLimited(double rate) {
+        this.rateLimitRate = rate;
+        return this;
+    }
+
+    /**
+     * Send response bodies {@code chunkBytes} at a time, pausing {@code interval} between chunks
+     */
+    public FaultProfile slowDrip(int chunkBytes, Duration interval) {
+        this.dripChunkBytes = chunkBytes;
+        this.dripIntervalMillis = interval.toMillis();
+        return this;
+    }
+
+    /**
+     * Fraction of async jobs (autofills, uploads, exports) that end in {@code failed}
+     */
+    public FaultProfile jobFailures(double rate) {
+        this.jobFailureRate = rate;
+        return this;
+    }
+
+    LatencyDistribution latency() {
+        return latency;
+    }
+
+    double errorRate() {
+        return errorRate;
+    }
+
+    int errorStatus() {
+        return errorStatus;
+    }
+
+    boolean inRateLimitBurst(long nowMillis) {
+        return rateLimitPeriodMillis > 0 && nowMillis % rateLimitPeriodMillis < rateLimitBurstMillis;
+    }
+
+    double rateLimitRate() {
+        return rateLimitRate;
+    }
+
+    int dripChunkBytes() {
+        return dripChunkBytes;
+    }
+
+    long dripIntervalMillis() {
+        return dripIntervalMillis;
+    }
+
+    double jobFailureRate() {
+        return jobFailureRate;
+    }
+}
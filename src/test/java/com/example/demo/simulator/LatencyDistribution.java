@@ -0,0 +1,41 @@
+package com.example.demo.simulator;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Server-side think time the simulator adds before answering
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /** 99th percentile of a standard normal distribution */
+    double Z_99 = 2.326;
+
+    long sampleMillis();
+
+    static LatencyDistribution none() {
+        return () -> 0;
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        long millis = latency.toMillis();
+        return () -> millis;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long from = min.toMillis();
+        long to = max.toMillis();
+        return () -> from == to ? from : ThreadLocalRandom.current().nextLong(from, to + 1);
+    }
+
+    /**
+     * Log-normal latency with the given median and 99th percentile, the usual shape of real API
+     * latency: most calls near the median and a long tail
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(Math.max(median.toMillis(), 1));
+        double sigma = Math.max((Math.log(Math.max(p99.toMillis(), 1)) - mu) / Z_99, 0);
+        return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.simulator;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Example response bodies derived from the bundled OpenAPI specs, so the simulator can answer
+ * every operation the specs define, not just the ones it models with state.
+ * <p>
+ * A schema's own {@code example} is used when it has one; otherwise an example is built from
+ * its properties: property examples, the first enum value, or a placeholder by type. For
+ * {@code oneOf} / {@code anyOf} the first alternative is used. Every call returns a fresh
+ * copy, so callers may modify it.
+ */
+public class SpecExamples {
+
+    private static final String SCHEMA_REF_PREFIX = "#/components/schemas/";
+    private static final String RESPONSE_REF_PREFIX = "#/components/responses/";
+    private static final int MAX_DEPTH = 8;
+
+    private final Map<String, Map<String, Object>> operations = new HashMap<>();
+    private final Map<String, Map<String, Object>> schemas = new HashMap<>();
+    private final Map<String, Map<String, Object>> responses = new HashMap<>();
+
+    public SpecExamples(String... specResources) {
+        for (String resource : specResources) {
+            load(resource);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(String resource) {
+        try (InputStream in = SpecExamples.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("OpenAPI spec " + resource + " not found on the classpath");
+            }
+            LoaderOptions options = new LoaderOptions();
+            options.setCodePointLimit(8 * 1024 * 1024);
+            Map<String, Object> spec = new Yaml(options).load(in);
+            Map<String, Object> components = (Map<String, Object>) spec.getOrDefault("components", Map.of());
+            // The first spec wins for names defined in both
+            ((Map<String, Map<String, Object>>) components.getOrDefault("schemas", Map.of())).forEach(schemas::putIfAbsent);
+            ((Map<String, Map<String, Object>>) components.getOrDefault("responses", Map.of())).forEach(responses::putIfAbsent);
+            Map<String, Object> paths = (Map<String, Object>) spec.getOrDefault("paths", Map.of());
+            for (Object pathItem : paths.values()) {
+                for (Object operation : ((Map<String, Object>) pathItem).values()) {
+                    if (operation instanceof Map<?, ?> op && op.get("operationId") instanceof String id) {
+                        operations.putIfAbsent(id, (Map<String, Object>) op);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean hasOperation(String operationId) {
+        return operations.containsKey(operationId);
+    }
+
+    /**
+     * Status of the operation's first 2xx response, 200 if it defines none
+     */
+    public int successStatus(String operationId) {
+        Map<String, Object> operation = operations.get(operationId);
+        if (operation != null && operation.get("responses") instanceof Map<?, ?> byStatus) {
+            for (Object status : byStatus.keySet()) {
+                String code = String.valueOf(status);
+                if (code.startsWith("2")) {
+                    return Integer.parseInt(code);
+                }
+            }
+        }
+        return 200;
+    }
+
+    /**
+     * Example JSON body of the operation's success response, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public Object forOperation(String operationId) {
+        Map<String, Object> operation = operations.get(operationId);
+        if (operation == null || !(operation.get("responses") instanceof Map<?, ?> byStatus)) {
+            return null;
+        }
+        Object response = byStatus.get(successStatus(operationId));
+        if (response == null) {
+            response = byStatus.get(String.valueOf(successStatus(operationId)));
+        }
+        if (response instanceof Map<?, ?> map && map.get("$ref") instanceof String ref && ref.startsWith(RESPONSE_REF_PREFIX)) {
+            response = responses.get(ref.substring(RESPONSE_REF_PREFIX.length()));
+        }
+        if (!(response instanceof Map<?, ?> definition)
+                || !(definition.get("content") instanceof Map<?, ?> content)
+                || !(content.get("application/json") instanceof Map<?, ?> json)) {
+            return null;
+        }
+        if (json.get("example") != null) {
+            return copy(json.get("example"));
+        }
+        return json.get("schema") instanceof Map<?, ?> schema ? example((Map<String, Object>) schema, 0) : null;
+    }
+
+    /**
+     * Example of a named component schema, e.g. {@code DesignSummary}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> forSchema(String name) {
+        Map<String, Object> schema = schemas.get(name);
+        if (schema == null) {
+            throw new IllegalArgumentException("No schema named " + name);
+        }
+        return (Map<String, Object>) example(schema, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object example(Map<String, Object> schema, int depth) {
+        if (schema.get("$ref") instanceof String ref) {
+            Map<String, Object> target = ref.startsWith(SCHEMA_REF_PREFIX) ? schemas.get(ref.substring(SCHEMA_REF_PREFIX.length())) : null;
+            return target != null && depth < MAX_DEPTH ? example(target, depth + 1) : null;
+        }
+        if (schema.get("example") != null) {
+            return copy(schema.get("example"));
+        }
+        if (schema.get("enum") instanceof List<?> values && !values.isEmpty()) {
+            return values.get(0);
+        }
+        if (schema.get("default") != null) {
+            return copy(schema.get("default"));
+        }
+        for (String alternatives : List.of("oneOf", "anyOf")) {
+            if (schema.get(alternatives) instanceof List<?> options && !options.isEmpty()) {
+                return example((Map<String, Object>) options.get(0), depth + 1);
+            }
+        }
+        if (schema.get("allOf") instanceof List<?> parts) {
+            Map<String, Object> merged = new LinkedHashMap<>();
+            for (Object part : parts) {
+                if (example((Map<String, Object>) part, depth + 1) instanceof Map<?, ?> partExample) {
+                    merged.putAll((Map<String, Object>) partExample);
+                }
+            }
+            return merged;
+        }
+
+        String type = schema.get("type") instanceof String t ? t : (schema.containsKey("properties") ? "object" : "string");
+        return switch (type) {
+            case "object" -> objectExample(schema, depth);
+            case "array" -> {
+                List<Object> items = new ArrayList<>();
+                if (depth < MAX_DEPTH && schema.get("items") instanceof Map<?, ?> itemSchema) {
+                    Object item = example((Map<String, Object>) itemSchema, depth + 1);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+                yield items;
+            }
+            case "integer" -> schema.get("minimum") instanceof Number min ? min : 0;
+            case "number" -> 0.0;
+            case "boolean" -> false;
+            default -> "string";
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> objectExample(Map<String, Object> schema, int depth) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        if (depth >= MAX_DEPTH) {
+            return object;
+        }
+        if (schema.get("properties") instanceof Map<?, ?> properties) {
+            for (Map.Entry<?, ?> property : properties.entrySet()) {
+                Object value = example((Map<String, Object>) property.getValue(), depth + 1);
+                if (value != null) {
+                    object.put((String) property.getKey(), value);
+                }
+            }
+        }
+        if (object.isEmpty() && schema.get("additionalProperties") instanceof Map<?, ?> valueSchema) {
+            Object value = example((Map<String, Object>) valueSchema, depth + 1);
+            if (value != null) {
+                object.put("key", value);
+            }
+        }
+        return object;
+    }
+
+    /** Deep copy of parsed YAML, so examples handed out never share state */
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, item) -> copy.put(String.valueOf(key), copy(item)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(copy(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+}